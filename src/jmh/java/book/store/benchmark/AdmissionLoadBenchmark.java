@@ -0,0 +1,187 @@
+package book.store.benchmark;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import book.store.BookStoreApplication;
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreData.BookStoreBook;
+import book.store.service.BookStoreService;
+
+//Compares request handling on platform threads with virtual threads, each with and without the AdmissionGate, when
+//1,000 to 10,000 clients send GET /book_store/{id} at the same moment. The server runs on an embedded H2 database
+//with a pool of 10 connections and the BookStoreCache off, so every request needs a connection.
+//
+//Every invocation is one such burst; its score is the time until the last client has its answer. After each
+//iteration the answers are printed: how many succeeded, were turned away with 503 or failed (a timeout after 30
+//seconds or a 500 from a pool timeout), and the p50, p99 and longest latency of the successful ones.
+//
+//Virtual threads need a Java 21 runtime: build and run with -Pjava21. On an older runtime the virtual trials fail
+//at setup instead of silently running on platform threads. Clients and server share the benchmark process, so every
+//client holds two sockets: the open file limit (ulimit -n) must be well above twice the number of clients.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class AdmissionLoadBenchmark {
+
+	private static final int POOL_SIZE = 10;
+	private static final int BOOKS = 50;
+	private static final Duration CLIENT_TIMEOUT = Duration.ofSeconds(30);
+
+	@Param({ "platform", "virtual" })
+	private String threads;
+
+	@Param({ "false", "true" })
+	private boolean admission;
+
+	@Param({ "1000", "5000", "10000" })
+	private int clients;
+
+	private ConfigurableApplicationContext context;
+	private ExecutorService clientExecutor;
+	private HttpClient httpClient;
+	private URI uri;
+
+	private final AtomicInteger succeeded = new AtomicInteger();
+	private final AtomicInteger rejected = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+	private final List<long[]> latencies = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		boolean virtual = threads.equals("virtual");
+
+		if (virtual && Runtime.version().feature() < 21) {
+			throw new IllegalStateException("Virtual threads need Java 21; this is Java " + Runtime.version());
+		}
+
+		context = new SpringApplicationBuilder(BookStoreApplication.class).web(WebApplicationType.SERVLET)
+				.logStartupInfo(false)
+				.run("--server.port=0", "--server.tomcat.max-connections=" + (clients * 2),
+						"--server.tomcat.accept-count=" + clients,
+						"--spring.threads.virtual.enabled=" + virtual,
+						"--spring.datasource.url=jdbc:h2:mem:admission" + System.nanoTime()
+								+ ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+						"--spring.datasource.username=sa", "--spring.datasource.password=",
+						"--spring.datasource.hikari.maximum-pool-size=" + POOL_SIZE,
+						"--spring.jpa.hibernate.ddl-auto=create-drop", "--spring.jpa.show-sql=false",
+						"--book-store.admission.enabled=" + admission, "--book-store.cache.ttl=0s",
+						"--book-store.search.rebuild-on-startup=false", "--book-store.logging.format=text",
+						"--logging.level.root=WARN", "--logging.level.book.store.controller.error=ERROR");
+		BookStoreService bookStoreService = context.getBean(BookStoreService.class);
+
+		BookStoreData bookStoreData = new BookStoreData();
+		bookStoreData.setBookStoreName("Busy Store");
+		Long bookStoreId = bookStoreService.saveBookStore(bookStoreData).getBookStoreId();
+
+		for (int i = 0; i < BOOKS; i++) {
+			BookStoreBook book = new BookStoreBook();
+			book.setGenre("Genre" + (i % 5));
+			book.setAuthor("Author" + i);
+			bookStoreService.saveBook(bookStoreId, book);
+		}
+
+		uri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+				+ "/book_store/" + bookStoreId);
+		//The clients' own threads only hand answers back, so a small pool keeps the client side out of the way
+		clientExecutor = Executors.newFixedThreadPool(8);
+		httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(clientExecutor).build();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+		clientExecutor.shutdownNow();
+	}
+
+	@Setup(Level.Iteration)
+	public void resetCounts() {
+		succeeded.set(0);
+		rejected.set(0);
+		failed.set(0);
+		latencies.clear();
+	}
+
+	@TearDown(Level.Iteration)
+	public void printCounts() {
+		long[] sorted = latencies.stream().flatMapToLong(Arrays::stream).filter(latency -> latency >= 0).sorted()
+				.toArray();
+		System.out.printf("%n%s threads, admission %s, %d clients: %d succeeded, %d got 503, %d failed; "
+				+ "latency p50 %d ms, p99 %d ms, max %d ms%n", threads, admission, clients, succeeded.get(),
+				rejected.get(), failed.get(), percentile(sorted, 0.50), percentile(sorted, 0.99),
+				percentile(sorted, 1.0));
+	}
+
+	@Benchmark
+	public void burst() {
+		HttpRequest request = HttpRequest.newBuilder(uri).timeout(CLIENT_TIMEOUT)
+				.header("Accept", "application/json").GET().build();
+		//Latencies of successful requests in milliseconds, -1 for the others
+		long[] burstLatencies = new long[clients];
+		CompletableFuture<?>[] answers = new CompletableFuture<?>[clients];
+
+		for (int i = 0; i < clients; i++) {
+			int client = i;
+			long sent = System.nanoTime();
+
+			answers[i] = httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+					.handle((response, error) -> {
+						burstLatencies[client] = -1;
+
+						if (Objects.nonNull(error)) {
+							failed.incrementAndGet();
+						} else if (response.statusCode() == 200) {
+							burstLatencies[client] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sent);
+							succeeded.incrementAndGet();
+						} else if (response.statusCode() == 503) {
+							rejected.incrementAndGet();
+						} else {
+							failed.incrementAndGet();
+						}
+						return null;
+					});
+		}
+
+		CompletableFuture.allOf(answers).join();
+		latencies.add(burstLatencies);
+	}
+
+	private static long percentile(long[] sorted, double share) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		return sorted[(int) Math.min(sorted.length - 1, Math.ceil(share * sorted.length) - 1)];
+	}
+}
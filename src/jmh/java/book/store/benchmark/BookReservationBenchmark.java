@@ -0,0 +1,107 @@
+package book.store.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import book.store.BookStoreApplication;
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreData.BookStoreBook;
+import book.store.service.BookStoreService;
+import book.store.service.InsufficientStockException;
+
+//Measures reservation throughput when many threads reserve the same book, as on a bestseller launch. Stock is reset
+//to initialStock before every iteration: the small value sells out part-way, so sold-out answers are measured too,
+//and the large one never does. After each iteration the final stock is checked against the number of successful
+//reservations; any oversell or lost reservation fails the run.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(64)
+@Fork(1)
+public class BookReservationBenchmark {
+
+	@Param({ "1000", "1000000" })
+	private int initialStock;
+
+	private ConfigurableApplicationContext context;
+	private BookStoreService bookStoreService;
+	private Long bookStoreId;
+	private Long bookId;
+	private final LongAdder reserved = new LongAdder();
+	private final LongAdder soldOut = new LongAdder();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = new SpringApplicationBuilder(BookStoreApplication.class).web(WebApplicationType.NONE)
+				.logStartupInfo(false)
+				.run("--spring.datasource.url=jdbc:h2:mem:reservation" + System.nanoTime()
+						+ ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+						"--spring.datasource.username=sa", "--spring.datasource.password=",
+						"--spring.datasource.hikari.maximum-pool-size=16",
+						"--spring.jpa.hibernate.ddl-auto=create-drop", "--spring.jpa.show-sql=false",
+						"--book-store.search.rebuild-on-startup=false", "--logging.level.root=WARN");
+		bookStoreService = context.getBean(BookStoreService.class);
+
+		BookStoreData bookStoreData = new BookStoreData();
+		bookStoreData.setBookStoreName("Launch Store");
+		bookStoreId = bookStoreService.saveBookStore(bookStoreData).getBookStoreId();
+
+		BookStoreBook book = new BookStoreBook();
+		book.setGenre("Bestseller");
+		book.setAuthor("Launch Author");
+		bookId = bookStoreService.saveBook(bookStoreId, book).getBookId();
+	}
+
+	@Setup(Level.Iteration)
+	public void restock() {
+		bookStoreService.saveBookStock(bookStoreId, bookId, initialStock);
+		reserved.reset();
+		soldOut.reset();
+	}
+
+	@TearDown(Level.Iteration)
+	public void verifyStock() {
+		int stock = bookStoreService.retrieveBookStock(bookStoreId, bookId).getStock();
+		long expected = initialStock - reserved.sum();
+
+		if (stock != expected || (soldOut.sum() > 0 && stock != 0)) {
+			throw new IllegalStateException("Stock is " + stock + " after " + reserved.sum() + " reservations and "
+					+ soldOut.sum() + " sold-out responses; expected " + expected);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public void reserve() {
+		try {
+			bookStoreService.reserveBook(bookStoreId, bookId, 1);
+			reserved.increment();
+		} catch (InsufficientStockException e) {
+			soldOut.increment();
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package book.store.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreData.BookStoreBook;
+import book.store.controller.model.BookStoreData.BookStoreCustomer;
+import book.store.controller.model.BookStoreData.BookStoreEmployee;
+
+//Measures writing a fully populated BookStoreData as JSON, CBOR and Smile, each with and without gzip, the way the
+//message converters and server.compression do it. The book store has the given number of customers, employees and
+//books each. The output goes to a stream that only counts it; the allocation is reported by the GC profiler and the
+//response size is printed at the end of each trial.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class BookStoreDataEncodingBenchmark {
+
+	@Param({ "1000", "10000", "100000" })
+	private int children;
+
+	@Param({ "json", "cbor", "smile" })
+	private String format;
+
+	@Param({ "false", "true" })
+	private boolean gzip;
+
+	private ObjectMapper objectMapper;
+	private BookStoreData bookStoreData;
+
+	@Setup
+	public void setUp() {
+		objectMapper = switch (format) {
+			case "cbor" -> Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+			case "smile" -> Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+			default -> Jackson2ObjectMapperBuilder.json().build();
+		};
+
+		bookStoreData = new BookStoreData();
+		bookStoreData.setBookStoreId(1L);
+		bookStoreData.setBookStoreName("Benchmark Books");
+		bookStoreData.setBookStoreAddress("1 Main Street");
+		bookStoreData.setBookStoreCity("Springfield");
+		bookStoreData.setBookStoreState("IL");
+		bookStoreData.setBookStoreZip("62701");
+		bookStoreData.setBookStorePhone("555-0100");
+
+		for (long id = 1; id <= children; id++) {
+			BookStoreCustomer customer = new BookStoreCustomer();
+			customer.setCustomerId(id);
+			customer.setCustomerFirstName("First" + id);
+			customer.setCustomerLastName("Last" + id);
+			customer.setCustomerEmail("customer" + id + "@example.com");
+			bookStoreData.getCustomers().add(customer);
+
+			BookStoreEmployee employee = new BookStoreEmployee();
+			employee.setEmployeeId(id);
+			employee.setEmployeeFirstName("First" + id);
+			employee.setEmployeeLastName("Last" + id);
+			employee.setEmployeePhone("555-" + id);
+			employee.setEmployeeJobTitle("Clerk");
+			bookStoreData.getEmployees().add(employee);
+
+			BookStoreBook book = new BookStoreBook();
+			book.setBookId(id);
+			book.setGenre("Genre" + (id % 20));
+			book.setPrice(BigDecimal.valueOf(id % 5000, 2));
+			book.setDescription("Description of book " + id);
+			book.setAuthor("Author" + (id % 500));
+			bookStoreData.getBooks().add(book);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		System.out.printf("%n%s, gzip %s: %d bytes%n", format, gzip, write());
+	}
+
+	@Benchmark
+	public long write() throws IOException {
+		ByteCounter counter = new ByteCounter();
+
+		if (gzip) {
+			try (GZIPOutputStream out = new GZIPOutputStream(counter, 8192)) {
+				objectMapper.writeValue(out, bookStoreData);
+			}
+		} else {
+			objectMapper.writeValue(counter, bookStoreData);
+		}
+		return counter.count;
+	}
+
+	private static class ByteCounter extends OutputStream {
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+}
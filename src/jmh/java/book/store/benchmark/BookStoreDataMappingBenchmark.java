@@ -0,0 +1,103 @@
+package book.store.benchmark;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreData.BookStoreBook;
+import book.store.controller.model.BookStoreData.BookStoreCustomer;
+import book.store.controller.model.BookStoreData.BookStoreEmployee;
+import book.store.entity.Book;
+import book.store.entity.BookStore;
+import book.store.entity.Customer;
+import book.store.entity.Employee;
+
+//Measures the entity to DTO copy in BookStoreData(BookStore) and its nested copies, without a database.
+//The book store has the given number of customers, employees and books each.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookStoreDataMappingBenchmark {
+
+	@Param({ "10", "1000", "10000" })
+	private int children;
+
+	private BookStore bookStore;
+	private Customer customer;
+	private Employee employee;
+	private Book book;
+
+	@Setup
+	public void setUp() {
+		bookStore = new BookStore();
+		bookStore.setBookStoreId(1L);
+		bookStore.setBookStoreName("Benchmark Books");
+		bookStore.setBookStoreAddress("1 Main Street");
+		bookStore.setBookStoreCity("Springfield");
+		bookStore.setBookStoreState("IL");
+		bookStore.setBookStoreZip("62701");
+		bookStore.setBookStorePhone("555-0100");
+
+		for (long id = 1; id <= children; id++) {
+			customer = new Customer();
+			customer.setCustomerId(id);
+			customer.setCustomerFirstName("First" + id);
+			customer.setCustomerLastName("Last" + id);
+			customer.setCustomerEmail("customer" + id + "@example.com");
+			bookStore.getCustomers().add(customer);
+
+			employee = new Employee();
+			employee.setEmployeeId(id);
+			employee.setEmployeeFirstName("First" + id);
+			employee.setEmployeeLastName("Last" + id);
+			employee.setEmployeePhone("555-" + id);
+			employee.setEmployeeJobTitle("Clerk");
+			employee.setBookStore(bookStore);
+			bookStore.getEmployees().add(employee);
+
+			book = new Book();
+			book.setBookId(id);
+			book.setGenre("Genre" + (id % 20));
+			book.setPrice(BigDecimal.valueOf(id % 5000, 2));
+			book.setDescription("Description of book " + id);
+			book.setAuthor("Author" + (id % 500));
+			book.setBookStore(bookStore);
+			bookStore.getBook().add(book);
+		}
+	}
+
+	@Benchmark
+	public BookStoreData bookStoreData() {
+		return new BookStoreData(bookStore);
+	}
+
+	@Benchmark
+	public BookStoreCustomer bookStoreCustomer() {
+		return new BookStoreCustomer(customer);
+	}
+
+	@Benchmark
+	public BookStoreEmployee bookStoreEmployee() {
+		return new BookStoreEmployee(employee);
+	}
+
+	@Benchmark
+	public BookStoreBook bookStoreBook() {
+		return new BookStoreBook(book);
+	}
+}
@@ -0,0 +1,127 @@
+package book.store.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import book.store.BookStoreApplication;
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreData.BookStoreBook;
+import book.store.controller.model.BookStoreData.BookStoreCustomer;
+import book.store.controller.model.BookStoreData.BookStoreEmployee;
+import book.store.controller.model.BookStoreData.Include;
+import book.store.service.BookStoreService;
+
+//Measures the BookStoreService read and write paths against an embedded H2 database in MySQL mode. The database is
+//seeded with the given number of book stores, each with booksPerStore books and a tenth as many customers and
+//employees. The BookStoreCache TTL is set to zero so every call reaches the database.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookStoreServiceBenchmark {
+
+	@Param({ "100", "1000" })
+	private int bookStores;
+
+	@Param({ "10", "1000" })
+	private int booksPerStore;
+
+	private ConfigurableApplicationContext context;
+	private BookStoreService bookStoreService;
+	private final List<Long> bookStoreIds = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = new SpringApplicationBuilder(BookStoreApplication.class).web(WebApplicationType.NONE)
+				.logStartupInfo(false)
+				.run("--spring.datasource.url=jdbc:h2:mem:benchmark" + System.nanoTime()
+						+ ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+						"--spring.datasource.username=sa", "--spring.datasource.password=",
+						"--spring.jpa.hibernate.ddl-auto=create-drop", "--spring.jpa.show-sql=false",
+						"--book-store.cache.ttl=0s",
+						"--book-store.search.rebuild-on-startup=false", "--logging.level.root=WARN");
+		bookStoreService = context.getBean(BookStoreService.class);
+
+		for (int store = 0; store < bookStores; store++) {
+			BookStoreData bookStoreData = new BookStoreData();
+			bookStoreData.setBookStoreName("Store " + store);
+			bookStoreData.setBookStoreZip(String.format("%05d", store));
+			Long bookStoreId = bookStoreService.saveBookStore(bookStoreData).getBookStoreId();
+			bookStoreIds.add(bookStoreId);
+
+			for (int person = 0; person < Math.max(1, booksPerStore / 10); person++) {
+				BookStoreCustomer customer = new BookStoreCustomer();
+				customer.setCustomerFirstName("Customer" + person);
+				customer.setCustomerEmail("customer" + store + "." + person + "@example.com");
+				bookStoreService.saveCustomer(bookStoreId, customer);
+
+				BookStoreEmployee employee = new BookStoreEmployee();
+				employee.setEmployeeFirstName("Employee" + person);
+				bookStoreService.saveEmployee(bookStoreId, employee);
+			}
+
+			StringBuilder books = new StringBuilder();
+
+			for (int book = 0; book < booksPerStore; book++) {
+				books.append("{\"genre\":\"Genre").append(book % 20).append("\",\"author\":\"Author")
+						.append(book % 500).append("\",\"price\":").append(BigDecimal.valueOf(book % 5000, 2))
+						.append(",\"description\":\"Description of book ").append(book).append("\"}\n");
+			}
+
+			bookStoreService.bulkSaveBooks(bookStoreId,
+					new ByteArrayInputStream(books.toString().getBytes(StandardCharsets.UTF_8)));
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<BookStoreData> retrieveAllBookStores() {
+		return bookStoreService.retrieveAllBookStores(null, 50);
+	}
+
+	@Benchmark
+	public BookStoreData retrieveBookStoreById() {
+		return bookStoreService.retrieveBookStoreById(randomBookStoreId(), Include.ALL);
+	}
+
+	@Benchmark
+	public BookStoreBook saveBook() {
+		BookStoreBook book = new BookStoreBook();
+		book.setGenre("Benchmark");
+		book.setAuthor("Benchmark Author");
+		book.setPrice(new BigDecimal("9.99"));
+		return bookStoreService.saveBook(randomBookStoreId(), book);
+	}
+
+	private Long randomBookStoreId() {
+		return bookStoreIds.get(ThreadLocalRandom.current().nextInt(bookStoreIds.size()));
+	}
+}
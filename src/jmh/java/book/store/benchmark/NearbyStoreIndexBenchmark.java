@@ -0,0 +1,115 @@
+package book.store.benchmark;
+
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import book.store.service.StoreGrid;
+import book.store.service.StoreGrid.Hit;
+
+//Measures the StoreGrid behind GET /book_store/nearby with the given number of book stores spread evenly over the
+//continental US:
+//  build: building the grid for all stores, as NearbyStoreIndex does on startup. Run with -prof gc for what the
+//  build allocates; the grid's estimatedBytes() is printed at the end of each trial.
+//  nearest: the 10 nearest stores within radiusKm of a random point
+//  scan: the same search by computing the distance to every store, for comparison
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class NearbyStoreIndexBenchmark {
+
+	private static final int K = 10;
+	private static final int QUERIES = 1024;
+
+	@Param({ "10000", "100000" })
+	private int stores;
+
+	@Param({ "50", "500" })
+	private double radiusKm;
+
+	private long[] storeIds;
+	private double[] latitudes;
+	private double[] longitudes;
+	private double[][] queries;
+	private StoreGrid grid;
+	private int next;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		storeIds = new long[stores];
+		latitudes = new double[stores];
+		longitudes = new double[stores];
+
+		for (int i = 0; i < stores; i++) {
+			storeIds[i] = i + 1;
+			latitudes[i] = 25 + random.nextDouble() * 24;
+			longitudes[i] = -124 + random.nextDouble() * 57;
+		}
+
+		queries = new double[QUERIES][];
+
+		for (int i = 0; i < QUERIES; i++) {
+			queries[i] = new double[] { 25 + random.nextDouble() * 24, -124 + random.nextDouble() * 57 };
+		}
+
+		grid = StoreGrid.build(storeIds, latitudes, longitudes);
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.printf("%n%d stores: estimated %d bytes%n", stores, grid.estimatedBytes());
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public StoreGrid build() {
+		return StoreGrid.build(storeIds, latitudes, longitudes);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public List<Hit> nearest() {
+		double[] query = queries[next++ & (QUERIES - 1)];
+		return grid.nearest(query[0], query[1], K, radiusKm);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.AverageTime)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public PriorityQueue<Hit> scan() {
+		double[] query = queries[next++ & (QUERIES - 1)];
+		PriorityQueue<Hit> farthestFirst = new PriorityQueue<>(K + 1,
+				(a, b) -> Double.compare(b.distanceKm(), a.distanceKm()));
+
+		for (int i = 0; i < stores; i++) {
+			double distance = StoreGrid.distanceKm(query[0], query[1], latitudes[i], longitudes[i]);
+
+			if (distance <= radiusKm) {
+				farthestFirst.add(new Hit(storeIds[i], distance));
+
+				if (farthestFirst.size() > K) {
+					farthestFirst.poll();
+				}
+			}
+		}
+		return farthestFirst;
+	}
+}
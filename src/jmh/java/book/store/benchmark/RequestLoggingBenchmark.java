@@ -0,0 +1,160 @@
+package book.store.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.LoggerFactory;
+
+import book.store.config.BoundedAsyncAppender;
+import book.store.controller.LogSummary;
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreData.BookStoreBook;
+import book.store.controller.model.BookStoreData.BookStoreCustomer;
+import book.store.controller.model.BookStoreData.BookStoreEmployee;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import ch.qos.logback.core.encoder.Encoder;
+import net.logstash.logback.encoder.LogstashEncoder;
+
+//Measures the throughput of the controller's "Creating the book store" line, written to a file from 8 threads:
+//  before: the whole BookStoreData through a synchronous FileAppender with Spring Boot's pattern
+//  summary: LogSummary.of(BookStoreData) through the same synchronous appender
+//  after: LogSummary.of(BookStoreData) as JSON through BoundedAsyncAppender, as configured in logback-spring.xml
+//The book store has the given number of customers, employees and books each. Events the async appender dropped
+//are printed at the end of each trial.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class RequestLoggingBenchmark {
+
+	private static final String PATTERN = "%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p %pid --- [%15.15t] %-40.40logger{39} : %m%n";
+
+	//Stands in for the rest of the request, so that events are not logged faster than a server would log them
+	private static final long REQUEST_WORK = 20_000;
+
+	@Param({ "10", "1000" })
+	private int children;
+
+	@Param({ "before", "summary", "after" })
+	private String logging;
+
+	private LoggerContext context;
+	private Logger log;
+	private Path file;
+	private BoundedAsyncAppender async;
+	private BookStoreData bookStoreData;
+
+	@Setup
+	public void setUp() throws IOException {
+		bookStoreData = new BookStoreData();
+		bookStoreData.setBookStoreId(1L);
+		bookStoreData.setBookStoreName("Benchmark Books");
+		bookStoreData.setBookStoreCity("Springfield");
+
+		for (long id = 1; id <= children; id++) {
+			BookStoreCustomer customer = new BookStoreCustomer();
+			customer.setCustomerId(id);
+			customer.setCustomerFirstName("First" + id);
+			customer.setCustomerLastName("Last" + id);
+			customer.setCustomerEmail("customer" + id + "@example.com");
+			bookStoreData.getCustomers().add(customer);
+
+			BookStoreEmployee employee = new BookStoreEmployee();
+			employee.setEmployeeId(id);
+			employee.setEmployeeFirstName("First" + id);
+			employee.setEmployeeLastName("Last" + id);
+			employee.setEmployeeJobTitle("Clerk");
+			bookStoreData.getEmployees().add(employee);
+
+			BookStoreBook book = new BookStoreBook();
+			book.setBookId(id);
+			book.setGenre("Genre" + (id % 20));
+			book.setDescription("Description of book " + id);
+			book.setAuthor("Author" + (id % 500));
+			bookStoreData.getBooks().add(book);
+		}
+
+		context = (LoggerContext) LoggerFactory.getILoggerFactory();
+		context.reset();
+		file = Files.createTempFile("request-logging", ".log");
+
+		Encoder<ILoggingEvent> encoder;
+
+		if (logging.equals("after")) {
+			encoder = new LogstashEncoder();
+		} else {
+			PatternLayoutEncoder patternEncoder = new PatternLayoutEncoder();
+			patternEncoder.setPattern(PATTERN);
+			encoder = patternEncoder;
+		}
+		encoder.setContext(context);
+		encoder.start();
+
+		FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+		fileAppender.setContext(context);
+		fileAppender.setName("FILE");
+		fileAppender.setFile(file.toString());
+		fileAppender.setEncoder(encoder);
+		fileAppender.start();
+
+		Appender<ILoggingEvent> appender = fileAppender;
+
+		if (logging.equals("after")) {
+			async = new BoundedAsyncAppender();
+			async.setContext(context);
+			async.setName("ASYNC");
+			async.addAppender(fileAppender);
+			async.start();
+			appender = async;
+		}
+
+		Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+		root.setLevel(Level.INFO);
+		root.addAppender(appender);
+		log = context.getLogger("book.store.controller.BookStoreController");
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		long dropped = async == null ? 0 : async.getDroppedCount();
+		context.stop();
+		System.out.printf("%n%s: wrote %d bytes, dropped %d events%n", logging, Files.size(file), dropped);
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public void insertBookStore() {
+		Blackhole.consumeCPU(REQUEST_WORK);
+
+		if (logging.equals("before")) {
+			log.info("Creating the book store {}", bookStoreData);
+		} else {
+			log.info("Creating the book store {}", LogSummary.of(bookStoreData));
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package book.store.config;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+//Hands log events to a background thread that writes them to the attached appenders, so a request never waits
+//for the console or a file. The queue is bounded and the appender never blocks: once the queue is more than
+//discard-threshold percent full, INFO and lower events are dropped, and when it is completely full every event is.
+//Dropped events are counted and published as book_store.logging.dropped by LoggingMetrics.
+//
+//Unlike logback's AsyncAppender this one knows how many events it drops. Caller data is not captured, and
+//everything still queued is written out when the appender stops, waiting at most max-flush-time.
+public class BoundedAsyncAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+		implements AppenderAttachable<ILoggingEvent> {
+
+	private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+	private final LongAdder dropped = new LongAdder();
+
+	private int queueSize = 8192;
+	private int discardThreshold = 80;
+	private int maxFlushTime = 1000;
+
+	private BlockingQueue<ILoggingEvent> queue;
+	private int discardAbove;
+	private Thread worker;
+
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+
+	public void setDiscardThreshold(int discardThreshold) {
+		this.discardThreshold = discardThreshold;
+	}
+
+	public void setMaxFlushTime(int maxFlushTime) {
+		this.maxFlushTime = maxFlushTime;
+	}
+
+	public long getDroppedCount() {
+		return dropped.sum();
+	}
+
+	public int getQueuedCount() {
+		return queue == null ? 0 : queue.size();
+	}
+
+	@Override
+	public void start() {
+		if (isStarted()) {
+			return;
+		}
+
+		if (queueSize < 1) {
+			addError("queueSize must be positive, not " + queueSize);
+			return;
+		}
+
+		queue = new ArrayBlockingQueue<>(queueSize);
+		discardAbove = queueSize * Math.min(Math.max(discardThreshold, 0), 100) / 100;
+		worker = new Thread(this::drain, "log-writer-" + getName());
+		worker.setDaemon(true);
+		super.start();
+		worker.start();
+	}
+
+	@Override
+	public void stop() {
+		if (!isStarted()) {
+			return;
+		}
+
+		super.stop();
+		worker.interrupt();
+
+		try {
+			worker.join(maxFlushTime);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (worker.isAlive()) {
+			addWarn(queue.size() + " queued events were not written within " + maxFlushTime + " ms");
+		}
+		appenders.detachAndStopAllAppenders();
+	}
+
+	@Override
+	protected void append(ILoggingEvent event) {
+		if (queue.size() >= discardAbove && !event.getLevel().isGreaterOrEqual(Level.WARN)) {
+			dropped.increment();
+			return;
+		}
+
+		//Renders the message and copies the MDC and thread name while still on the calling thread
+		event.prepareForDeferredProcessing();
+
+		if (!queue.offer(event)) {
+			dropped.increment();
+		}
+	}
+
+	private void drain() {
+		List<ILoggingEvent> batch = new ArrayList<>();
+
+		while (isStarted()) {
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				break;
+			}
+			queue.drainTo(batch);
+			write(batch);
+		}
+
+		queue.drainTo(batch);
+		write(batch);
+	}
+
+	private void write(List<ILoggingEvent> batch) {
+		for (ILoggingEvent event : batch) {
+			appenders.appendLoopOnAppenders(event);
+		}
+		batch.clear();
+	}
+
+	@Override
+	public void addAppender(Appender<ILoggingEvent> appender) {
+		appenders.addAppender(appender);
+	}
+
+	@Override
+	public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+		return appenders.iteratorForAppenders();
+	}
+
+	@Override
+	public Appender<ILoggingEvent> getAppender(String name) {
+		return appenders.getAppender(name);
+	}
+
+	@Override
+	public boolean isAttached(Appender<ILoggingEvent> appender) {
+		return appenders.isAttached(appender);
+	}
+
+	@Override
+	public void detachAndStopAllAppenders() {
+		appenders.detachAndStopAllAppenders();
+	}
+
+	@Override
+	public boolean detachAppender(Appender<ILoggingEvent> appender) {
+		return appenders.detachAppender(appender);
+	}
+
+	@Override
+	public boolean detachAppender(String name) {
+		return appenders.detachAppender(name);
+	}
+}
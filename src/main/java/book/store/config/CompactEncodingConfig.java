@@ -0,0 +1,32 @@
+package book.store.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+//Binary encodings of the JSON API. A client sending Accept: application/cbor or application/x-jackson-smile gets the
+//same document as with JSON in a more compact form, and may send request bodies in either format too. Both mappers
+//come from Boot's Jackson2ObjectMapperBuilder, so spring.jackson.* settings apply to every format alike.
+//
+//Compression is left to the server (server.compression); CBOR and Smile still shrink a lot under gzip because the
+//field names and values of the child sets repeat.
+@Configuration
+public class CompactEncodingConfig {
+
+	@Bean
+	public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2CborHttpMessageConverter(
+				builder.createXmlMapper(false).factory(new CBORFactory()).build());
+	}
+
+	@Bean
+	public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2SmileHttpMessageConverter(
+				builder.createXmlMapper(false).factory(new SmileFactory()).build());
+	}
+}
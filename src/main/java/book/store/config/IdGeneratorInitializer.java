@@ -0,0 +1,57 @@
+package book.store.config;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+//Book, Employee and Customer take their IDs from the pooled id_generator table so that Hibernate can batch
+//their inserts. Rows created before the switch used AUTO_INCREMENT, so on startup each generator row is moved
+//past the highest existing ID. The value is only ever raised, never lowered.
+//
+//It runs once every singleton is created, so Hibernate has already updated the schema, but before the context
+//starts its lifecycle beans: the web server and the OrderWriter, whose journal replay inserts order lines, only
+//take IDs after this.
+@Component
+@Slf4j
+public class IdGeneratorInitializer implements SmartInitializingSingleton {
+
+	//Must match the allocationSize of the @TableGenerator mappings
+	private static final int ALLOCATION_SIZE = 50;
+
+	private static final String[][] GENERATORS = {
+			{ "book", "book", "book_id" },
+			{ "employee", "employee", "employee_id" },
+			{ "customer", "customer", "customer_id" },
+			{ "order_line", "order_line", "order_line_id" } };
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		for (String[] generator : GENERATORS) {
+			String sequenceName = generator[0];
+			Long maxId = jdbcTemplate.queryForObject(
+					"select coalesce(max(" + generator[2] + "), 0) from " + generator[1], Long.class);
+
+			//The pooled optimizer hands out IDs from (next_val - ALLOCATION_SIZE, next_val], so this keeps
+			//every generated ID above the existing ones.
+			long nextVal = maxId + ALLOCATION_SIZE + 1;
+
+			int updated = jdbcTemplate.update(
+					"update id_generator set next_val = ? where sequence_name = ? and next_val < ?",
+					nextVal, sequenceName, nextVal);
+
+			if (updated == 0 && jdbcTemplate.queryForObject(
+					"select count(*) from id_generator where sequence_name = ?", Integer.class, sequenceName) == 0) {
+				jdbcTemplate.update("insert into id_generator (sequence_name, next_val) values (?, ?)",
+						sequenceName, nextVal);
+			}
+
+			log.info("ID generator {} starts above existing ID {}", sequenceName, maxId);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package book.store.config;
+
+import java.util.Iterator;
+
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+//Publishes the counters of the logging set up in logback-spring.xml: the events each BoundedAsyncAppender on the
+//root logger dropped and still has queued, and the events SamplingTurboFilter left out.
+@Component
+public class LoggingMetrics implements MeterBinder {
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+			return;
+		}
+
+		Iterator<Appender<ILoggingEvent>> appenders = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)
+				.iteratorForAppenders();
+
+		while (appenders.hasNext()) {
+			if (appenders.next() instanceof BoundedAsyncAppender appender) {
+				FunctionCounter.builder("book_store.logging.dropped", appender, BoundedAsyncAppender::getDroppedCount)
+						.description("Log events dropped because the appender's queue was full")
+						.tag("appender", appender.getName()).register(registry);
+				Gauge.builder("book_store.logging.queued", appender, BoundedAsyncAppender::getQueuedCount)
+						.description("Log events waiting to be written").tag("appender", appender.getName())
+						.register(registry);
+			}
+		}
+
+		for (TurboFilter filter : context.getTurboFilterList()) {
+			if (filter instanceof SamplingTurboFilter sampling) {
+				FunctionCounter.builder("book_store.logging.sampled_out", sampling,
+						SamplingTurboFilter::getSampledOutCount)
+						.description("Log events left out by sampling").register(registry);
+			}
+		}
+	}
+}
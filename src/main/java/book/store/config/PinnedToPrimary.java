@@ -0,0 +1,14 @@
+package book.store.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//Sends every statement run during the annotated method to the primary database, including those in read-only
+//transactions that would otherwise go to a replica. For methods that read data they are about to write, or that run
+//repository reads outside a transaction of their own.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface PinnedToPrimary {
+}
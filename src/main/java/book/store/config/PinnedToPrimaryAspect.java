@@ -0,0 +1,18 @@
+package book.store.config;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+//Applies PinnedToPrimary. Registered by ReadReplicaConfig, so without replicas the annotation costs nothing.
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class PinnedToPrimaryAspect {
+
+	@Around("@annotation(book.store.config.PinnedToPrimary)")
+	public Object pin(ProceedingJoinPoint joinPoint) throws Throwable {
+		return ReplicaRoutingDataSource.onPrimary(joinPoint::proceed);
+	}
+}
@@ -0,0 +1,115 @@
+package book.store.config;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+//Book prices used to be stored as text in book.price. They now live in the decimal column book.price_amount.
+//On startup this copies every legacy price that has not been migrated yet, in batches. The legacy column is not
+//dropped.
+//
+//Only unambiguous prices are copied: digits with an optional "$", at most two decimals after a point, and commas
+//only as thousands separators ("$12.99", "1,299.00"). "12,99" could be 12.99 or 1299, and "12.999" could be a price
+//with a thousands point, so those, anything that is not a number and anything beyond DECIMAL(10,2) are logged and
+//left empty for a person to fix. A row the database still refuses is logged and skipped too; it never stops startup.
+//
+//It runs once every singleton is created, so Hibernate has already added price_amount, but before the web server
+//and the ApplicationRunners (the stats rollups and the search index read prices) start.
+@Component
+@Slf4j
+public class PriceColumnMigration implements SmartInitializingSingleton {
+
+	private static final int BATCH_SIZE = 1000;
+
+	private static final Pattern PRICE = Pattern.compile("\\$?\\s*(\\d{1,3}(,\\d{3})+|\\d+)(\\.\\d{1,2})?");
+
+	//The largest value of price_amount, DECIMAL(10,2)
+	private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if (!legacyPriceColumnExists()) {
+			return;
+		}
+
+		long lastBookId = 0;
+		long migrated = 0;
+		long skipped = 0;
+		List<Map<String, Object>> rows;
+
+		do {
+			rows = jdbcTemplate.queryForList("select book_id, price from book where book_id > ? and price is not null "
+					+ "and price_amount is null order by book_id limit " + BATCH_SIZE, lastBookId);
+
+			for (Map<String, Object> row : rows) {
+				lastBookId = ((Number) row.get("book_id")).longValue();
+				BigDecimal price = parsePrice((String) row.get("price"));
+
+				if (Objects.isNull(price)) {
+					log.warn("Book with ID={} has a price that is ambiguous, not a number or out of range: '{}'", lastBookId,
+							row.get("price"));
+					skipped++;
+					continue;
+				}
+
+				try {
+					migrated += jdbcTemplate.update("update book set price_amount = ? where book_id = ?", price,
+							lastBookId);
+				} catch (DataAccessException e) {
+					log.warn("Book with ID={} has a price the database refused: '{}'", lastBookId, row.get("price"), e);
+					skipped++;
+				}
+			}
+		} while (rows.size() == BATCH_SIZE);
+
+		if (migrated > 0 || skipped > 0) {
+			log.info("Migrated {} book prices to the price_amount column, left {} empty", migrated, skipped);
+		}
+	}
+
+	private boolean legacyPriceColumnExists() {
+		return Boolean.TRUE.equals(jdbcTemplate.execute((Connection connection) -> {
+			DatabaseMetaData metaData = connection.getMetaData();
+
+			for (String table : new String[] { "book", "BOOK" }) {
+				for (String column : new String[] { "price", "PRICE" }) {
+					try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, table, column)) {
+						if (columns.next()) {
+							return true;
+						}
+					}
+				}
+			}
+			return false;
+		}));
+	}
+
+	//Returns the price with two decimals, or null if it does not match PRICE or does not fit the column
+	static BigDecimal parsePrice(String price) {
+		String trimmed = price.trim();
+
+		if (!PRICE.matcher(trimmed).matches()) {
+			return null;
+		}
+
+		BigDecimal amount = new BigDecimal(trimmed.replaceAll("[$,\\s]", "")).setScale(2, RoundingMode.UNNECESSARY);
+		return amount.compareTo(MAX_PRICE) > 0 ? null : amount;
+	}
+}
@@ -0,0 +1,90 @@
+package book.store.config;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import book.store.config.ReadReplicaProperties.Replica;
+import io.micrometer.core.instrument.MeterRegistry;
+
+//Replaces the auto-configured DataSource with ReplicaRoutingDataSource when book-store.datasource.replicas lists at
+//least one replica. The primary pool is still built from spring.datasource and spring.datasource.hikari; each replica
+//gets its own Hikari pool named replica-<n>, with the usual hikaricp.* metrics. The transaction manager becomes a
+//ReplicaAwareTransactionManager, which keeps replica reads out of Hibernate's caches.
+@Configuration
+@ConditionalOnProperty("book-store.datasource.replicas[0].url")
+@EnableConfigurationProperties(ReadReplicaProperties.class)
+public class ReadReplicaConfig {
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+		return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+
+	@Bean
+	public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+			DataSourceProperties dataSourceProperties, ReadReplicaProperties properties, MeterRegistry meterRegistry) {
+		List<Replica> replicas = properties.getReplicas();
+		List<HikariDataSource> pools = IntStream.range(0, replicas.size())
+				.mapToObj(index -> replicaPool("replica-" + index, replicas.get(index), dataSourceProperties,
+						meterRegistry))
+				.toList();
+
+		return new ReplicaRoutingDataSource(primaryDataSource, pools, properties.getSelection(),
+				properties.getMaxLag(), properties.getCheckInterval(), meterRegistry);
+	}
+
+	//The DataSource JPA and JDBC use. The lazy proxy only fetches a real connection at the first statement.
+	@Bean
+	@Primary
+	public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+		return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+	}
+
+	//Replaces the auto-configured JpaTransactionManager, which it extends
+	@Bean
+	public PlatformTransactionManager transactionManager(
+			ObjectProvider<TransactionManagerCustomizers> transactionManagerCustomizers) {
+		ReplicaAwareTransactionManager transactionManager = new ReplicaAwareTransactionManager();
+		transactionManagerCustomizers.ifAvailable(customizers -> customizers.customize(transactionManager));
+		return transactionManager;
+	}
+
+	@Bean
+	public PinnedToPrimaryAspect pinnedToPrimaryAspect() {
+		return new PinnedToPrimaryAspect();
+	}
+
+	private static HikariDataSource replicaPool(String name, Replica replica,
+			DataSourceProperties dataSourceProperties, MeterRegistry meterRegistry) {
+		HikariDataSource pool = new HikariDataSource();
+		pool.setPoolName(name);
+		pool.setJdbcUrl(replica.getUrl());
+		pool.setUsername(Objects.isNull(replica.getUsername()) ? dataSourceProperties.determineUsername()
+				: replica.getUsername());
+		pool.setPassword(Objects.isNull(replica.getPassword()) ? dataSourceProperties.determinePassword()
+				: replica.getPassword());
+		pool.setMaximumPoolSize(replica.getMaximumPoolSize());
+		pool.setReadOnly(true);
+		pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+		return pool;
+	}
+}
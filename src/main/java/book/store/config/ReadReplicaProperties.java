@@ -0,0 +1,38 @@
+package book.store.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+//The book-store.datasource settings. Read-only transactions are only routed to replicas when at least one is listed.
+@Data
+@ConfigurationProperties("book-store.datasource")
+public class ReadReplicaProperties {
+
+	public enum Selection {
+		ROUND_ROBIN, LEAST_LOADED
+	}
+
+	private List<Replica> replicas = new ArrayList<>();
+	private Selection selection = Selection.ROUND_ROBIN;
+
+	//Replicas whose heartbeat is older than this are skipped. Zero turns the lag check off, so only whether the
+	//replica answers is checked.
+	private Duration maxLag = Duration.ofSeconds(5);
+
+	//How often the primary's heartbeat is written and the replicas are checked
+	private Duration checkInterval = Duration.ofSeconds(2);
+
+	@Data
+	public static class Replica {
+		private String url;
+		//Default to spring.datasource.username and password
+		private String username;
+		private String password;
+		private int maximumPoolSize = 10;
+	}
+}
@@ -0,0 +1,49 @@
+package book.store.config;
+
+import java.util.Objects;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//The transaction manager used with replicas. A read-only transaction that is not pinned to the primary may read a
+//replica that lags behind, so its session only reads the second-level and query caches and never puts what it loaded
+//into them: a stale entity or query result put there would be served to every later reader, write paths included.
+//Pinned reads fill the caches from the primary as usual.
+public class ReplicaAwareTransactionManager extends JpaTransactionManager {
+
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	protected void doBegin(Object transaction, TransactionDefinition definition) {
+		super.doBegin(transaction, definition);
+
+		if (definition.isReadOnly() && !ReplicaRoutingDataSource.isPinned()) {
+			Session session = currentSession();
+
+			if (Objects.nonNull(session)) {
+				session.setCacheMode(CacheMode.GET);
+			}
+		}
+	}
+
+	//A session that outlives the transaction, such as one bound for the whole request, gets its cache mode back
+	@Override
+	protected void doCleanupAfterCompletion(Object transaction) {
+		Session session = currentSession();
+
+		if (Objects.nonNull(session) && session.isOpen() && session.getCacheMode() == CacheMode.GET) {
+			session.setCacheMode(CacheMode.NORMAL);
+		}
+		super.doCleanupAfterCompletion(transaction);
+	}
+
+	private Session currentSession() {
+		EntityManagerHolder holder = (EntityManagerHolder) TransactionSynchronizationManager
+				.getResource(obtainEntityManagerFactory());
+		return Objects.isNull(holder) ? null : holder.getEntityManager().unwrap(Session.class);
+	}
+}
@@ -0,0 +1,246 @@
+package book.store.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import book.store.config.ReadReplicaProperties.Selection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+//Hands out replica connections inside read-only transactions and primary connections everywhere else. It sits
+//behind a LazyConnectionDataSourceProxy, so the choice is made at the first statement, after the transaction manager
+//has marked the transaction read-only.
+//
+//Replica lag is measured with a heartbeat row: every check-interval the primary's replica_heartbeat row gets the
+//current time, and each replica's copy of the row tells how far behind it is. A replica that is further behind than
+//max-lag, or that cannot be reached, is skipped until a later check finds it healthy again. With no healthy replica,
+//or when a replica fails to hand out a connection, reads go to the primary.
+//
+//Caches must only ever be filled from the primary. ReplicaAwareTransactionManager keeps replica reads out of the
+//second-level and query caches, and the reads that fill the BookStoreCache are pinned to the primary.
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+	private static final ThreadLocal<Boolean> PINNED = ThreadLocal.withInitial(() -> false);
+
+	private final DataSource primary;
+	private final List<Replica> replicas = new ArrayList<>();
+	private final Selection selection;
+	private final Duration maxLag;
+	private final AtomicInteger next = new AtomicInteger();
+	private final ScheduledExecutorService checker;
+
+	private final Counter primaryConnections;
+	private final Counter fallbacks;
+
+	public ReplicaRoutingDataSource(DataSource primary, List<HikariDataSource> replicaPools, Selection selection,
+			Duration maxLag, Duration checkInterval, MeterRegistry meterRegistry) {
+		this.primary = primary;
+		this.selection = selection;
+		this.maxLag = maxLag;
+
+		for (HikariDataSource pool : replicaPools) {
+			Replica replica = new Replica(pool, Counter.builder("book_store.datasource.connections")
+					.description("Connections handed out, by database").tag("target", pool.getPoolName())
+					.register(meterRegistry));
+			replicas.add(replica);
+			Gauge.builder("book_store.datasource.replica.lag", replica,
+					r -> r.lagMillis < 0 ? Double.NaN : r.lagMillis / 1000.0)
+					.description("Age of the replica's heartbeat at the last check").baseUnit("seconds")
+					.tag("target", pool.getPoolName()).register(meterRegistry);
+			Gauge.builder("book_store.datasource.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+					.tag("target", pool.getPoolName()).register(meterRegistry);
+		}
+
+		primaryConnections = Counter.builder("book_store.datasource.connections")
+				.description("Connections handed out, by database").tag("target", "primary").register(meterRegistry);
+		fallbacks = Counter.builder("book_store.datasource.fallbacks")
+				.description("Read-only connections taken from the primary because no replica could serve them")
+				.register(meterRegistry);
+
+		createHeartbeatTable();
+		checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "replica-check");
+			thread.setDaemon(true);
+			return thread;
+		});
+		checker.scheduleWithFixedDelay(this::check, 0, checkInterval.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	//Runs the work with every connection taken from the primary. Used by PinnedToPrimary.
+	static Object onPrimary(PinnedWork work) throws Throwable {
+		boolean pinned = PINNED.get();
+		PINNED.set(true);
+
+		try {
+			return work.run();
+		} finally {
+			PINNED.set(pinned);
+		}
+	}
+
+	//Whether the current thread runs work pinned to the primary
+	static boolean isPinned() {
+		return PINNED.get();
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		if (TransactionSynchronizationManager.isCurrentTransactionReadOnly() && !PINNED.get()) {
+			Replica replica = choose();
+
+			if (Objects.nonNull(replica)) {
+				try {
+					Connection connection = replica.pool.getConnection();
+					replica.connections.increment();
+					return connection;
+				} catch (SQLException e) {
+					replica.healthy = false;
+					log.warn("Replica {} failed to hand out a connection; reading from the primary: {}",
+							replica.pool.getPoolName(), e.toString());
+				}
+			}
+			fallbacks.increment();
+		}
+
+		primaryConnections.increment();
+		return primary.getConnection();
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		primaryConnections.increment();
+		return primary.getConnection(username, password);
+	}
+
+	@Override
+	public void destroy() {
+		checker.shutdownNow();
+		replicas.forEach(replica -> replica.pool.close());
+	}
+
+	private Replica choose() {
+		List<Replica> healthy = replicas.stream().filter(replica -> replica.healthy).toList();
+
+		if (healthy.isEmpty()) {
+			return null;
+		}
+
+		if (selection == Selection.LEAST_LOADED) {
+			return healthy.stream()
+					.min(Comparator.comparingInt(replica -> replica.pool.getHikariPoolMXBean().getActiveConnections()))
+					.get();
+		}
+		return healthy.get(Math.floorMod(next.getAndIncrement(), healthy.size()));
+	}
+
+	private void createHeartbeatTable() {
+		try (Connection connection = primary.getConnection(); Statement statement = connection.createStatement()) {
+			statement.execute("create table if not exists replica_heartbeat "
+					+ "(id int not null primary key, beat_at bigint not null)");
+		} catch (SQLException e) {
+			log.warn("Could not create the replica_heartbeat table; replica lag cannot be measured: {}", e.toString());
+		}
+	}
+
+	private void check() {
+		long now = System.currentTimeMillis();
+
+		if (!maxLag.isZero()) {
+			writeHeartbeat(now);
+		}
+
+		for (Replica replica : replicas) {
+			boolean wasHealthy = replica.healthy;
+
+			try (Connection connection = replica.pool.getConnection()) {
+				if (maxLag.isZero()) {
+					replica.lagMillis = 0;
+					replica.healthy = connection.isValid(1);
+				} else {
+					replica.lagMillis = now - readHeartbeat(connection);
+					replica.healthy = replica.lagMillis <= maxLag.toMillis();
+				}
+			} catch (SQLException e) {
+				replica.healthy = false;
+				replica.lagMillis = -1;
+				log.debug("Replica {} check failed", replica.pool.getPoolName(), e);
+			}
+
+			if (wasHealthy != replica.healthy) {
+				log.info("Replica {} is now {} (lag {} ms)", replica.pool.getPoolName(),
+						replica.healthy ? "in use" : "skipped", replica.lagMillis);
+			}
+		}
+	}
+
+	private void writeHeartbeat(long now) {
+		try (Connection connection = primary.getConnection()) {
+			connection.setAutoCommit(true);
+
+			try (PreparedStatement update = connection
+					.prepareStatement("update replica_heartbeat set beat_at = ? where id = 1")) {
+				update.setLong(1, now);
+
+				if (update.executeUpdate() == 0) {
+					try (PreparedStatement insert = connection
+							.prepareStatement("insert into replica_heartbeat (id, beat_at) values (1, ?)")) {
+						insert.setLong(1, now);
+						insert.executeUpdate();
+					}
+				}
+			}
+		} catch (SQLException e) {
+			log.warn("Could not write the replica heartbeat: {}", e.toString());
+		}
+	}
+
+	//A replica without the heartbeat row counts as infinitely far behind
+	private static long readHeartbeat(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement();
+				ResultSet row = statement.executeQuery("select beat_at from replica_heartbeat where id = 1")) {
+			return row.next() ? row.getLong(1) : 0;
+		}
+	}
+
+	@FunctionalInterface
+	interface PinnedWork {
+		Object run() throws Throwable;
+	}
+
+	private static class Replica {
+		private final HikariDataSource pool;
+		private final Counter connections;
+		//Skipped until the first check has found the replica healthy
+		private volatile boolean healthy;
+		//-1 while the replica cannot be checked
+		private volatile long lagMillis = -1;
+
+		Replica(HikariDataSource pool, Counter connections) {
+			this.pool = pool;
+			this.connections = connections;
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package book.store.config;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Marker;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+
+//Keeps only a random share (rate, 0 to 1) of the INFO and lower events of the loggers under the given
+//comma-separated prefixes, e.g. the per-request lines of book.store.controller. WARN and ERROR always pass.
+//The decision is made before the message is formatted, so a sampled-out event costs next to nothing. Sampled-out
+//events are published as book_store.logging.sampled_out by LoggingMetrics.
+public class SamplingTurboFilter extends TurboFilter {
+
+	private final LongAdder sampledOut = new LongAdder();
+
+	private String[] loggers = {};
+	private double rate = 1.0;
+
+	public void setLoggers(String loggers) {
+		this.loggers = Arrays.stream(loggers.split(",")).map(String::trim).filter(name -> !name.isEmpty())
+				.toArray(String[]::new);
+	}
+
+	public void setRate(double rate) {
+		this.rate = rate;
+	}
+
+	public long getSampledOutCount() {
+		return sampledOut.sum();
+	}
+
+	@Override
+	public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params,
+			Throwable t) {
+		//isInfoEnabled() and the like pass no format; they are left alone so a guarded call is not sampled twice
+		if (rate >= 1.0 || format == null || level.isGreaterOrEqual(Level.WARN) || !isSampled(logger.getName())
+				|| ThreadLocalRandom.current().nextDouble() < rate) {
+			return FilterReply.NEUTRAL;
+		}
+
+		sampledOut.increment();
+		return FilterReply.DENY;
+	}
+
+	private boolean isSampled(String name) {
+		for (String prefix : loggers) {
+			if (name.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,97 @@
+package book.store.config;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+import book.store.config.SecondLevelCacheProperties.Region;
+
+//Hibernate's second-level and query cache, backed by Caffeine through JCache. Book, Employee and Customer are cached
+//READ_WRITE, so a lookup by ID inside a write path is served from memory while updates and deletes through Hibernate
+//keep the cache in step.
+//
+//Every region is created here with the size and TTL from book-store.cache.second-level, and a region used by an
+//entity but missing from REGIONS stops startup. The update-timestamps region that guards the query cache is never
+//bounded: losing a timestamp could serve a stale query result.
+//
+//JPQL bulk updates and deletes empty the whole region of the entity they touch, and READ_WRITE lets any reader fill
+//an empty entry, including one whose snapshot predates the update. BookStore is left out for that reason: every child
+//write bumps its contentVersion in bulk, and a book store put back from such a snapshot failed the next PUT on its
+//version and fed old data to the BookStoreCache. Stock reservations and stock updates are native updates with a query
+//space of their own, so they leave the book region and the cached book queries alone; stock is only ever read by an
+//uncached query, never from a cached Book.
+@Configuration
+@EnableConfigurationProperties(SecondLevelCacheProperties.class)
+public class SecondLevelCacheConfig implements HibernatePropertiesCustomizer {
+
+	private static final List<String> REGIONS = List.of("book", "employee", "customer",
+			RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+
+	private final SecondLevelCacheProperties properties;
+
+	public SecondLevelCacheConfig(SecondLevelCacheProperties properties) {
+		this.properties = properties;
+	}
+
+	@Bean(destroyMethod = "close")
+	public CacheManager secondLevelCacheManager() {
+		//The caching provider hands out one cache manager per URI and JVM, so each application context (as in the
+		//tests) gets its own URI and with it its own regions
+		CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+				.getCacheManager(URI.create("book-store-second-level-" + UUID.randomUUID()), getClass().getClassLoader());
+
+		for (String region : REGIONS) {
+			Region limits = properties.getRegions().getOrDefault(region, new Region());
+			long maxSize = Objects.requireNonNullElse(limits.getMaxSize(), properties.getMaxSize());
+			long ttl = Objects.requireNonNullElse(limits.getTtl(), properties.getTtl()).toNanos();
+			createCache(cacheManager, region, new CaffeineConfiguration<>().setMaximumSize(OptionalLong.of(maxSize))
+					.setExpireAfterWrite(OptionalLong.of(ttl)));
+		}
+
+		createCache(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+				new CaffeineConfiguration<>());
+		return cacheManager;
+	}
+
+	@Override
+	public void customize(Map<String, Object> hibernateProperties) {
+		if (!properties.isEnabled()) {
+			hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+			hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, false);
+			return;
+		}
+
+		hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+		hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, true);
+		hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+		hibernateProperties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager());
+		hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+		//The service sets Book.bookStore and Employee.bookStore without touching the book store's collections,
+		//so Hibernate has to evict the cached collection itself
+		hibernateProperties.put(AvailableSettings.AUTO_EVICT_COLLECTION_CACHE, true);
+	}
+
+	private static void createCache(CacheManager cacheManager, String region,
+			CaffeineConfiguration<Object, Object> configuration) {
+		configuration.setStoreByValue(false);
+		configuration.setStatisticsEnabled(true);
+		cacheManager.createCache(region, configuration);
+	}
+}
@@ -0,0 +1,27 @@
+package book.store.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+//The book-store.cache.second-level settings: a size and TTL for every Hibernate cache region, with optional
+//overrides per region name
+@Data
+@ConfigurationProperties("book-store.cache.second-level")
+public class SecondLevelCacheProperties {
+
+	private boolean enabled = true;
+	private long maxSize = 10_000;
+	private Duration ttl = Duration.ofMinutes(10);
+	private Map<String, Region> regions = new LinkedHashMap<>();
+
+	@Data
+	public static class Region {
+		private Long maxSize;
+		private Duration ttl;
+	}
+}
@@ -0,0 +1,67 @@
+package book.store.config;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+//Counts the SQL statements Hibernate prepares into the count bound to the current thread. SqlStatementMetrics starts
+//a count when a request starts, keeps it as a request attribute and records it when the request ends; a test can do
+//the same around a call to catch an N+1 regression:
+//
+//	SqlStatementCounter.reset();
+//	bookStoreService.retrieveBookStoreById(id, Include.ALL);
+//	assertThat(SqlStatementCounter.count()).isLessThanOrEqualTo(4);
+//
+//Tasks run on the application task executor, such as the StreamingResponseBody of an export, are wrapped by
+//propagate() and add to the count of the request that started them. Statements run after their request has been
+//recorded, by an asynchronous deletion for example, are in no request's figure, and neither are those of threads
+//the executor does not run.
+//
+//A JDBC batch is prepared once, so it counts as one statement however many rows it writes.
+public final class SqlStatementCounter implements StatementInspector {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final ThreadLocal<AtomicLong> COUNT = ThreadLocal.withInitial(AtomicLong::new);
+
+	//Starts a new count on the current thread
+	public static void reset() {
+		COUNT.set(new AtomicLong());
+	}
+
+	public static long count() {
+		return COUNT.get().get();
+	}
+
+	//The count bound to the current thread, for keeping with the request it belongs to
+	static AtomicLong current() {
+		return COUNT.get();
+	}
+
+	//Binds the given count to the current thread, for a request that resumes on another thread
+	static void bind(AtomicLong count) {
+		COUNT.set(count);
+	}
+
+	//Wraps the task so that the statements it runs add to the count of the thread that wraps it
+	public static Runnable propagate(Runnable task) {
+		AtomicLong count = COUNT.get();
+
+		return () -> {
+			AtomicLong previous = COUNT.get();
+			COUNT.set(count);
+
+			try {
+				task.run();
+			} finally {
+				COUNT.set(previous);
+			}
+		};
+	}
+
+	@Override
+	public String inspect(String sql) {
+		COUNT.get().incrementAndGet();
+		return sql;
+	}
+}
@@ -0,0 +1,102 @@
+package book.store.config;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+//Records how many SQL statements each request runs as the book_store.sql.statements summary, tagged by method
+//and URI pattern. A request over book-store.sql.statement-budget is logged as a warning, which is usually the
+//first sign of an N+1 query.
+//
+//The count belongs to the request, not to a thread: it is kept as a request attribute and bound again when an
+//asynchronous request is dispatched back to a container thread, and the task decorator hands it to the work the
+//request runs on the application task executor. See SqlStatementCounter for what is not counted.
+@Configuration
+@Slf4j
+public class SqlStatementMetrics implements WebMvcConfigurer, HibernatePropertiesCustomizer {
+
+	private static final String COUNT_ATTRIBUTE = SqlStatementMetrics.class.getName() + ".count";
+
+	private final MeterRegistry meterRegistry;
+
+	@Value("${book-store.sql.statement-budget:20}")
+	private long statementBudget;
+
+	public SqlStatementMetrics(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+
+	@Override
+	public void customize(Map<String, Object> hibernateProperties) {
+		hibernateProperties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+	}
+
+	//Picked up by the application task executor, which runs StreamingResponseBody and WebAsyncTask work
+	@Bean
+	public TaskDecorator sqlStatementCountDecorator() {
+		return SqlStatementCounter::propagate;
+	}
+
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(new HandlerInterceptor() {
+			@Override
+			public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+				//An asynchronous request comes back here when it is dispatched to a container thread again
+				if (request.getAttribute(COUNT_ATTRIBUTE) instanceof AtomicLong started) {
+					SqlStatementCounter.bind(started);
+				} else {
+					SqlStatementCounter.reset();
+					request.setAttribute(COUNT_ATTRIBUTE, SqlStatementCounter.current());
+				}
+				return true;
+			}
+
+			@Override
+			public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+					Exception ex) {
+				record(request);
+			}
+		});
+	}
+
+	private void record(HttpServletRequest request) {
+		if (!(request.getAttribute(COUNT_ATTRIBUTE) instanceof AtomicLong count)) {
+			return;
+		}
+
+		long statements = count.get();
+		Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+		String uri = Objects.isNull(pattern) ? "UNKNOWN" : pattern.toString();
+
+		DistributionSummary.builder("book_store.sql.statements")
+				.description("SQL statements executed per request")
+				.tag("method", request.getMethod())
+				.tag("uri", uri)
+				.publishPercentileHistogram()
+				.register(meterRegistry)
+				.record(statements);
+
+		if (statements > statementBudget) {
+			log.warn("{} {} executed {} SQL statements, over the budget of {}", request.getMethod(), uri,
+					statements, statementBudget);
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package book.store.config;
+
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import book.store.dao.BookStreamDao;
+import io.micrometer.core.instrument.MeterRegistry;
+
+//Connections for the long streaming reads: the catalog export and the search index rebuild. They come from a small
+//Hikari pool of their own, named streaming, opened with book-store.streaming.connection-properties. The default
+//useCursorFetch=true makes MySQL send the rows through a server-side cursor, fetch-size rows per round-trip, instead
+//of the driver buffering the whole result. On spring.datasource the flag would make every statement a server-side
+//prepared statement and cost the short queries an extra round-trip.
+//
+//The pool is not a DataSource bean, so it never replaces the auto-configured one, and it always reads the primary.
+@Configuration
+@EnableConfigurationProperties(StreamingReadProperties.class)
+public class StreamingReadConfig {
+
+	@Bean(destroyMethod = "close")
+	public BookStreamDao bookStreamDao(DataSourceProperties dataSourceProperties, StreamingReadProperties properties,
+			MeterRegistry meterRegistry) {
+		HikariDataSource pool = new HikariDataSource();
+		pool.setPoolName("streaming");
+		pool.setJdbcUrl(dataSourceProperties.determineUrl());
+		pool.setUsername(dataSourceProperties.determineUsername());
+		pool.setPassword(dataSourceProperties.determinePassword());
+		pool.setMaximumPoolSize(properties.getMaximumPoolSize());
+		//Exports are rare, so no connection is kept open between them
+		pool.setMinimumIdle(0);
+		pool.setReadOnly(true);
+		properties.getConnectionProperties().forEach(pool::addDataSourceProperty);
+		pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+		return new BookStreamDao(pool, properties.getFetchSize());
+	}
+}
@@ -0,0 +1,22 @@
+package book.store.config;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+//The book-store.streaming settings for the connection pool of the long streaming reads (see StreamingReadConfig)
+@Data
+@ConfigurationProperties("book-store.streaming")
+public class StreamingReadProperties {
+
+	private int maximumPoolSize = 4;
+
+	//Rows fetched per round-trip
+	private int fetchSize = 1000;
+
+	//JDBC driver properties added to spring.datasource.url for this pool only
+	private Map<String, String> connectionProperties = new LinkedHashMap<>();
+}
@@ -1,22 +1,49 @@
 package book.store.controller;
 
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
+import book.store.controller.model.BookBulkLoadSummary;
+import book.store.controller.model.BookGenreStats;
+import book.store.controller.model.BookPage;
+import book.store.controller.model.BookStock;
+import book.store.controller.model.BookStoreBatch;
 import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreDeletion;
+import book.store.controller.model.BookStoreOrder;
+import book.store.controller.model.BookStoreStats;
+import book.store.controller.model.BookStoreVersion;
+import book.store.controller.model.NearbyBookStore;
+import book.store.controller.model.BookStoreData.Include;
 import book.store.controller.model.BookStoreData.BookStoreBook;
 import book.store.controller.model.BookStoreData.BookStoreCustomer;
 import book.store.controller.model.BookStoreData.BookStoreEmployee;
@@ -31,24 +58,38 @@ public class BookStoreController {
     @Autowired
     private BookStoreService bookStoreService; // Injects BookStoreService bean
 
+    @Value("${book-store.export.timeout:30m}")
+    private Duration exportTimeout;
+
   //Maps POST requests to the method. The requests are sent to /Boko_store. 
   	//The method creates/inserts a book store's data into the database by calling the saveBookStore() method in the BookStoreService class
     
     @PostMapping
     @ResponseStatus(code =HttpStatus.CREATED)
     public BookStoreData insertBookStore(@RequestBody BookStoreData bookStoreData) {
-        log.info("Creating the book store {}", bookStoreData);
+        log.info("Creating the book store {}", LogSummary.of(bookStoreData));
         return bookStoreService.saveBookStore(bookStoreData);
     }
 
   //Maps PUT requests to the method. The requests are sent to /book_store/{bookStoreId}.
-  	//The method updates a book store's data in the database by calling the saveBookStore() method in the BookStoreService class
+  	//The method updates a book store's data in the database by calling the saveBookStore() method in the BookStoreService class.
+  	//With an If-Match header the update only happens if the book store has not changed since that ETag was issued (412 otherwise).
+  	//If-Match compares strongly: only the strong ETag of GET or PUT /book_store/{bookStoreId} can match, a weak ETag always gets 412.
+  	//The response is gzip-compressed like the GET one.
     
     @PutMapping("/{bookStoreId}")
-    public BookStoreData updateBookStore(@PathVariable Long bookStoreId, @RequestBody BookStoreData bookStoreData) {
+    public ResponseEntity<BookStoreData> updateBookStore(@PathVariable Long bookStoreId,
+            @RequestBody BookStoreData bookStoreData,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         bookStoreData.setBookStoreId(bookStoreId); // Sets the ID from path variable
-        log.info("Updating book store {}", bookStoreData);
-        return bookStoreService.saveBookStore(bookStoreData);
+        log.info("Updating book store {}", LogSummary.of(bookStoreData));
+        BookStoreData dbBookStoreData = bookStoreService.saveBookStore(bookStoreData,
+                BookStoreETags.expectedVersion(ifMatch));
+
+        return withETag(dbBookStoreData, Include.ALL, BookStoreETags.encoding(accept),
+                BookStoreETags.gzip(acceptEncoding));
     }
 
   //Maps a POST request to the method. The requests are sent to /book_store/{bookStoreId}/employee.
@@ -57,7 +98,8 @@ public class BookStoreController {
     @PostMapping("/{bookStoreId}/employee")
     @ResponseStatus(code =HttpStatus.CREATED)
     public BookStoreEmployee insertEmployee(@PathVariable Long bookStoreId, @RequestBody BookStoreEmployee bookStoreEmployee) {
-        log.info("Creating employee {} for book store with ID={}", bookStoreEmployee, bookStoreId);
+        log.info("Creating employee {} for book store with ID={}", LogSummary.capped(bookStoreEmployee),
+                bookStoreId);
         return bookStoreService.saveEmployee(bookStoreId, bookStoreEmployee);
     }
     
@@ -67,34 +109,269 @@ public class BookStoreController {
     @PostMapping("/{bookStoreId}/customer")
     @ResponseStatus(code =HttpStatus.CREATED)
     public BookStoreCustomer insertCustomer(@PathVariable Long bookStoreId, @RequestBody BookStoreCustomer bookStoreCustomer) {
-        log.info("Creating customer {} for book store with ID={}", bookStoreCustomer, bookStoreId);
+        log.info("Creating customer {} for book store with ID={}", LogSummary.capped(bookStoreCustomer),
+                bookStoreId);
         return bookStoreService.saveCustomer(bookStoreId, bookStoreCustomer);
         
     }
     
+  //Maps a GET request to the method. The requests are sent to /book_store/{bookStoreId}/customer?email=.
+  	//The method looks up one of the book store's customers by email by calling the retrieveCustomerByEmail() method in the BookStoreService class
+    
+    @GetMapping("/{bookStoreId}/customer")
+    public BookStoreCustomer retrieveCustomerByEmail(@PathVariable Long bookStoreId, @RequestParam String email) {
+        log.info("Retrieving customer {} for book store with ID={}", LogSummary.capped(email), bookStoreId);
+        return bookStoreService.retrieveCustomerByEmail(bookStoreId, email);
+    }
+    
     @PostMapping("/{bookstoreId}/book")
     @ResponseStatus(code =HttpStatus.CREATED)
     public BookStoreBook insertBook(@PathVariable Long bookstoreId, @RequestBody BookStoreBook book) {
-        log.info("Creating book {} for bookstore with ID={}", book, bookstoreId);
+        log.info("Creating book {} for bookstore with ID={}", LogSummary.capped(book), bookstoreId);
         return bookStoreService.saveBook(bookstoreId, book);
     }
 
+  //Maps a POST request to the method. The requests are sent to /book_store/{bookStoreId}/book/{bookId}/reserve?quantity=.
+  	//The method takes copies of the book out of stock by calling the reserveBook() method in the BookStoreService class.
+  	//If fewer copies are left than requested nothing is reserved and 409 Conflict is returned.
+    
+    @PostMapping("/{bookStoreId}/book/{bookId}/reserve")
+    public BookStock reserveBook(@PathVariable Long bookStoreId, @PathVariable Long bookId,
+            @RequestParam(defaultValue = "1") int quantity) {
+        log.info("Reserving {} copies of book with ID={} in book store with ID={}", quantity, bookId, bookStoreId);
+        return bookStoreService.reserveBook(bookStoreId, bookId, quantity);
+    }
+
+  //Maps a GET request to the method. The requests are sent to /book_store/{bookStoreId}/book/{bookId}/stock.
+  	//The method returns the number of copies in stock by calling the retrieveBookStock() method in the BookStoreService class
+    
+    @GetMapping("/{bookStoreId}/book/{bookId}/stock")
+    public BookStock retrieveBookStock(@PathVariable Long bookStoreId, @PathVariable Long bookId) {
+        log.info("Retrieving stock of book with ID={} in book store with ID={}", bookId, bookStoreId);
+        return bookStoreService.retrieveBookStock(bookStoreId, bookId);
+    }
+
+  //Maps a PUT request to the method. The requests are sent to /book_store/{bookStoreId}/book/{bookId}/stock.
+  	//The method sets the number of copies in stock by calling the saveBookStock() method in the BookStoreService class
+    
+    @PutMapping("/{bookStoreId}/book/{bookId}/stock")
+    public BookStock updateBookStock(@PathVariable Long bookStoreId, @PathVariable Long bookId,
+            @RequestBody BookStock bookStock) {
+        log.info("Setting stock of book with ID={} in book store with ID={} to {}", bookId, bookStoreId,
+                bookStock.getStock());
+        return bookStoreService.saveBookStock(bookStoreId, bookId, bookStock.getStock());
+    }
+
+  //Maps a POST request to the method. The requests are sent to /book_store/{bookStoreId}/order.
+  	//The method places a customer's order by calling the checkout() method in the BookStoreService class. The order is priced
+  	//and journaled, then written to the database in the background, so 202 Accepted is returned with status PENDING.
+    
+    @PostMapping("/{bookStoreId}/order")
+    @ResponseStatus(code = HttpStatus.ACCEPTED)
+    public BookStoreOrder checkout(@PathVariable Long bookStoreId, @RequestBody BookStoreOrder bookStoreOrder) {
+        log.info("Checking out order {} for book store with ID={}", LogSummary.of(bookStoreOrder),
+                bookStoreId);
+        return bookStoreService.checkout(bookStoreId, bookStoreOrder);
+    }
+
+  //Maps a GET request to the method. The requests are sent to /book_store/{bookStoreId}/order/{orderId}.
+  	//The method retrieves an order by calling the retrieveOrder() method in the BookStoreService class
+    
+    @GetMapping("/{bookStoreId}/order/{orderId}")
+    public BookStoreOrder retrieveOrder(@PathVariable Long bookStoreId, @PathVariable String orderId) {
+        log.info("Retrieving order {} for book store with ID={}", orderId, bookStoreId);
+        return bookStoreService.retrieveOrder(bookStoreId, orderId);
+    }
+
+  //Maps a POST request to the method. The requests are sent to /book_store/{bookstoreId}/books:bulk.
+  	//The body is a JSON array of books or newline-delimited JSON (application/x-ndjson). It is read as a stream and stored
+  	//in chunks by calling the bulkSaveBooks() method in the BookStoreService class. A summary is returned instead of the rows.
+    
+    @PostMapping(value = "/{bookstoreId}/books:bulk",
+            consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    @ResponseStatus(code =HttpStatus.CREATED)
+    public BookBulkLoadSummary insertBooks(@PathVariable Long bookstoreId, InputStream body) {
+        log.info("Bulk loading books for bookstore with ID={}", bookstoreId);
+        return bookStoreService.bulkSaveBooks(bookstoreId, body);
+    }
+
+  //Maps a GET request to the method. The requests are sent to /book_store/{bookStoreId}/books/export.
+  	//The method streams every book of the book store as newline-delimited JSON by calling the exportBooks() method in the BookStoreService class
+  	//The export is written on an async thread with its own timeout, book-store.export.timeout, since large catalogs take longer than other requests
+    
+    @GetMapping(value = "/{bookStoreId}/books/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> exportBooks(@PathVariable Long bookStoreId, HttpServletResponse response) {
+        log.info("Exporting books for book store with ID={}", bookStoreId);
+        bookStoreService.verifyBookStoreExists(bookStoreId);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        return new WebAsyncTask<>(exportTimeout.toMillis(), () -> {
+            bookStoreService.exportBooks(bookStoreId, response.getOutputStream());
+            return null;
+        });
+    }
+
+  //Maps a GET request to the method. The requests are sent to /book_store/{bookStoreId}/books.
+  	//The method lists one page of books, optionally filtered by genre and author and sorted by id, price or author (prefix - for descending), by calling the retrieveBooks() method in the BookStoreService class.
+  	//Pass the previous page's "next" value as "after" to fetch the next page.
+    
+    @GetMapping("/{bookStoreId}/books")
+    public BookPage retrieveBooks(@PathVariable Long bookStoreId, @RequestParam(required = false) String genre,
+            @RequestParam(required = false) String author, @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String after, @RequestParam(defaultValue = "50") int limit) {
+        log.info("Retrieving books with genre {} and author {} sorted by {} for book store with ID={}", genre, author,
+                sort, bookStoreId);
+        return bookStoreService.retrieveBooks(bookStoreId, genre, author, sort, after, limit);
+    }
+
+  //Maps a GET request to the method. The requests are sent to /book_store/{bookStoreId}/books/by_price.
+  	//The method lists books in a price range, cheapest first, by calling the retrieveBooksByPrice() method in the BookStoreService class
+    
+    @GetMapping("/{bookStoreId}/books/by_price")
+    public List<BookStoreBook> retrieveBooksByPrice(@PathVariable Long bookStoreId,
+            @RequestParam(required = false) String genre, @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice, @RequestParam(defaultValue = "50") int limit) {
+        log.info("Retrieving books priced {} to {} in genre {} for book store with ID={}", minPrice, maxPrice, genre,
+                bookStoreId);
+        return bookStoreService.retrieveBooksByPrice(bookStoreId, genre, minPrice, maxPrice, limit);
+    }
+
+  //Maps a GET request to the method. The requests are sent to /book_store/{bookStoreId}/books/stats.
+  	//The method returns count, min, max, average and total price per genre by calling the retrieveBookStats() method in the BookStoreService class
+    
+    @GetMapping("/{bookStoreId}/books/stats")
+    public List<BookGenreStats> retrieveBookStats(@PathVariable Long bookStoreId) {
+        log.info("Retrieving book stats for book store with ID={}", bookStoreId);
+        return bookStoreService.retrieveBookStats(bookStoreId);
+    }
+
+  //Maps a GET request to the method. The requests are sent to /book_store/{bookStoreId}/stats.
+  	//The method returns customer, book and order counts with revenue per genre and per top author by calling the retrieveBookStoreStats() method in the BookStoreService class
+    
+    @GetMapping("/{bookStoreId}/stats")
+    public BookStoreStats retrieveBookStoreStats(@PathVariable Long bookStoreId,
+            @RequestParam(defaultValue = "20") int authors) {
+        log.info("Retrieving stats for book store with ID={}", bookStoreId);
+        return bookStoreService.retrieveBookStoreStats(bookStoreId, authors);
+    }
+
+  //Maps a GET request to the method. The requests are sent to /book_store/{bookStoreId}/books/search.
+  	//The method returns the books best matching q by author, genre or description by calling the searchBooks() method in the BookStoreService class
+    
+    @GetMapping("/{bookStoreId}/books/search")
+    public List<BookStoreBook> searchBooks(@PathVariable Long bookStoreId, @RequestParam String q,
+            @RequestParam(defaultValue = "0") int offset, @RequestParam(defaultValue = "20") int limit) {
+        log.info("Searching books for '{}' in book store with ID={}", LogSummary.capped(q), bookStoreId);
+        return bookStoreService.searchBooks(bookStoreId, q, offset, limit);
+    }
+
   //Maps a GET request to the method. The requests are sent to /Book_store.
-  	//The method retrieves all Book store data from the database by calling the retrieveAllBooktores() method in the BookStoreService class
+  	//The method retrieves one page of book store summaries by calling the retrieveAllBookStores() method in the BookStoreService class.
+  	//Pass the last bookStoreId of the previous page as "after" to fetch the next page.
  
     @GetMapping()
-    public List<BookStoreData> retrieveAllBookStores() {
-        log.info("Retrieve all book stores.");
-        return bookStoreService.retrieveAllBookStores();
+    public ResponseEntity<List<BookStoreData>> retrieveAllBookStores(@RequestParam(required = false) Long after,
+            @RequestParam(defaultValue = "50") int limit) {
+        log.info("Retrieve book stores after ID={} with limit={}.", after, limit);
+        List<BookStoreData> page = bookStoreService.retrieveAllBookStores(after, limit);
+
+        // Spring answers 304 Not Modified itself when the ETag matches If-None-Match
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT)
+                .eTag(BookStoreETags.of(page)).body(page);
     }
     
+  //Maps a GET request to the method. The requests are sent to /book_store/changes.
+  	//The method opens a Server-Sent Events stream of committed changes by calling the streamChanges() method in the BookStoreService class.
+  	//Each "change" event has the change's sequence as its ID. A client resumes after a sequence with since= or, when reconnecting, with
+  	//the Last-Event-ID header, which wins. A new client, or one whose sequence is too old, first gets a "reset" event and should then
+  	//load GET /book_store; the changes that follow are all it needs afterwards.
+    
+    @GetMapping("/changes")
+    public SseEmitter streamChanges(@RequestParam(required = false) Long since,
+            @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        Long resumeAfter = Objects.nonNull(lastEventId) ? lastEventId : since;
+        log.info("Streaming book store changes after sequence {}", resumeAfter);
+        return bookStoreService.streamChanges(resumeAfter);
+    }
+
+  //Maps a GET request to the method. The requests are sent to /book_store/nearby?zip=62701&k=10&radiusKm=50.
+  	//The method returns the k book stores nearest to the ZIP code within radiusKm, nearest first, by calling the retrieveNearbyBookStores() method in the BookStoreService class.
+  	//Distances are between ZIP code centroids. An unknown ZIP code is answered with 404.
+    
+    @GetMapping("/nearby")
+    public List<NearbyBookStore> retrieveNearbyBookStores(@RequestParam String zip,
+            @RequestParam(defaultValue = "10") int k, @RequestParam(defaultValue = "50") double radiusKm) {
+        log.info("Retrieving {} book stores within {} km of ZIP code {}", k, radiusKm, LogSummary.capped(zip));
+        return bookStoreService.retrieveNearbyBookStores(zip, k, radiusKm);
+    }
+
+  //Maps a GET request to the method. The requests are sent to /book_store?ids=1,2,3.
+  	//The method retrieves several book stores at once by calling the retrieveBookStoresByIds() method in the BookStoreService class.
+  	//IDs that do not exist are returned in missingIds; include works as for a single book store.
+    
+    @GetMapping(params = "ids")
+    public BookStoreBatch retrieveBookStoresByIds(@RequestParam List<Long> ids,
+            @RequestParam(required = false) List<String> include) {
+        log.info("Retrieving {} book stores by ID including {}", ids.size(), include);
+        return bookStoreService.retrieveBookStoresByIds(ids, Include.parse(include));
+    }
+
+  //Maps a POST request to the method. The requests are sent to /book_store/batch.
+  	//The method does the same as the ids= GET for ID lists too long for a URL. The body is a JSON array of book store IDs.
+    
+    @PostMapping("/batch")
+    public BookStoreBatch retrieveBookStoreBatch(@RequestBody List<Long> ids,
+            @RequestParam(required = false) List<String> include) {
+        log.info("Retrieving {} book stores by ID including {}", ids.size(), include);
+        return bookStoreService.retrieveBookStoresByIds(ids, Include.parse(include));
+    }
+
   //Maps a GET request to the method. The requests are sent to /book_store/{bookStoreId}. 
-  	//The method retrieves a book store's data from the database by calling the retrieveBookStoreById() method in the BookStoreService class
+  	//The method retrieves a book store's data from the database by calling the retrieveBookStoreById() method in the BookStoreService class.
+  	//The optional include parameter (e.g. include=customers,books) picks which child sets are returned; the default is all of them.
+  	//A request with If-None-Match is first checked against the book store's version columns and answered with 304 Not Modified
+  	//when nothing has changed, without loading the book store at all.
+  	//Like every endpoint, it answers in CBOR or Smile instead of JSON when the Accept header asks for it.
+  	//The ETag is strong, so that it can be sent back in If-Match. Tomcat never compresses a response with a strong ETag, so this one
+  	//is gzip-compressed by GzipBodyFilter when the client accepts gzip, and its ETag ends in +gzip.
     
     @GetMapping("/{bookStoreId}")
-    public BookStoreData retrieveBookStoreById(@PathVariable Long bookStoreId) {
-        log.info("Retrieving book store by ID={}", bookStoreId);
-        return bookStoreService.retrieveBookStoreById(bookStoreId);
+    public ResponseEntity<BookStoreData> retrieveBookStoreById(@PathVariable Long bookStoreId,
+            @RequestParam(required = false) List<String> include, WebRequest request) {
+        log.info("Retrieving book store by ID={} including {}", bookStoreId, include);
+        Set<Include> includes = Include.parse(include);
+        MediaType encoding = BookStoreETags.encoding(request.getHeader(HttpHeaders.ACCEPT));
+        boolean gzip = BookStoreETags.gzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+
+        if (Objects.nonNull(encoding) && Objects.nonNull(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            BookStoreVersion version = bookStoreService.retrieveBookStoreVersion(bookStoreId);
+
+            if (request.checkNotModified(
+                    BookStoreETags.of(version.getVersion(), version.getContentVersion(), includes, encoding, gzip))) {
+                return null;
+            }
+        }
+
+        BookStoreData bookStoreData = bookStoreService.retrieveBookStoreById(bookStoreId, includes);
+        return withETag(bookStoreData, includes, encoding, gzip);
+    }
+
+    //Sends a single book store with its strong ETag. The content type and content encoding are set up front, so the
+    //body is encoded and compressed the way the ETag says; when the client accepts none of the encodings, Spring
+    //answers 406 as usual.
+    private static ResponseEntity<BookStoreData> withETag(BookStoreData bookStoreData, Set<Include> includes,
+            MediaType encoding, boolean gzip) {
+        if (Objects.isNull(encoding)) {
+            return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING).body(bookStoreData);
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING).contentType(encoding)
+                .eTag(BookStoreETags.of(bookStoreData, includes, encoding, gzip));
+
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(bookStoreData);
     }
   //Maps a DELETE request to the method. The requests are sent to /book_store/{bookStoreId}.
   	//The method deletes a book store's data from the database by calling the deleteBookStoreById() method in the BookStoreService class
@@ -102,10 +379,31 @@ public class BookStoreController {
     @DeleteMapping("/{bookStoreId}")
     public Map<String, String> deleteBookStoreById(@PathVariable Long bookStoreId) {
         log.info("Deleting book store with ID={}", bookStoreId);
-        bookStoreService.deleteBookStoreById(bookStoreId);
+        BookStoreDeletion deletion = bookStoreService.deleteBookStoreById(bookStoreId);
+
+        return Map.of("message", deletion.getMessage());
+    }
+
+  //Maps a DELETE request with async=true to the method. The requests are sent to /book_store/{bookStoreId}?async=true.
+  	//The method starts the deletion in the background and returns 202 Accepted with a job that can be polled at the Location header
+    
+    @DeleteMapping(value = "/{bookStoreId}", params = "async=true")
+    public ResponseEntity<BookStoreDeletion> startBookStoreDeletion(@PathVariable Long bookStoreId) {
+        log.info("Starting deletion of book store with ID={}", bookStoreId);
+        BookStoreDeletion deletion = bookStoreService.startBookStoreDeletion(bookStoreId);
+
+        return ResponseEntity.accepted()
+                .location(URI.create("/book_store/deletions/" + deletion.getJobId()))
+                .body(deletion);
+    }
 
-        return Map.of("message", "Deletion of book store with ID=" + bookStoreId
-                + " was successful.");
+  //Maps a GET request to the method. The requests are sent to /book_store/deletions/{jobId}.
+  	//The method returns the progress of an asynchronous book store deletion by calling the retrieveDeletion() method in the BookStoreService class
+    
+    @GetMapping("/deletions/{jobId}")
+    public BookStoreDeletion retrieveDeletion(@PathVariable String jobId) {
+        log.info("Retrieving deletion job {}", jobId);
+        return bookStoreService.retrieveDeletion(jobId);
     }
 }
 
@@ -0,0 +1,160 @@
+package book.store.controller;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreData.Include;
+
+//Builds the ETags of the book store endpoints from the version columns.
+//A single book store has a strong ETag, "<version>.<contentVersion>", followed by the included child sets when not
+//all of them are returned, by the encoding when it is not JSON, and by +gzip when the body is gzip-compressed, e.g.
+//"4.17-books+cbor+gzip". If-Match compares ETags strongly (RFC 9110 13.1.1), so only these strong ETags can guard an
+//update. Tomcat does not compress a response that carries a strong ETag, so the controller has GzipBodyFilter do it,
+//and the ETag names the compressed body.
+//A page of the summary listing has a weak ETag, a hash of the IDs and versions on the page, and is compressed by
+//Tomcat as usual.
+final class BookStoreETags {
+
+	private static final List<MediaType> ENCODINGS = List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR,
+			new MediaType("application", "x-jackson-smile"));
+
+	private BookStoreETags() {
+	}
+
+	static String of(long version, long contentVersion, Set<Include> include, MediaType encoding, boolean gzip) {
+		StringBuilder eTag = new StringBuilder("\"").append(version).append('.').append(contentVersion);
+
+		if (!include.equals(Include.ALL)) {
+			eTag.append('-').append(include.stream()
+					.map(value -> value.name().toLowerCase(Locale.ROOT))
+					.collect(Collectors.joining("-")));
+		}
+
+		if (Objects.nonNull(encoding) && !encoding.equals(MediaType.APPLICATION_JSON)) {
+			eTag.append('+').append(encoding.equals(MediaType.APPLICATION_CBOR) ? "cbor" : "smile");
+		}
+
+		if (gzip) {
+			eTag.append("+gzip");
+		}
+		return eTag.append('"').toString();
+	}
+
+	static String of(BookStoreData bookStoreData, Set<Include> include, MediaType encoding, boolean gzip) {
+		return of(bookStoreData.getVersion(), bookStoreData.getContentVersion(), include, encoding, gzip);
+	}
+
+	//Picks JSON, CBOR or Smile for the Accept header: the first of them the client accepts with the highest quality,
+	//JSON when it accepts anything, and null when it accepts none of them. The response is sent with this content
+	//type, so that its strong ETag always names the encoding of the body.
+	static MediaType encoding(String accept) {
+		if (Objects.isNull(accept) || accept.isBlank()) {
+			return MediaType.APPLICATION_JSON;
+		}
+
+		List<MediaType> accepted;
+
+		try {
+			accepted = MediaType.parseMediaTypes(accept);
+		} catch (InvalidMediaTypeException e) {
+			return null;
+		}
+
+		return accepted.stream()
+				.sorted(Comparator.comparingDouble(MediaType::getQualityValue).reversed())
+				.filter(mediaType -> mediaType.getQualityValue() > 0)
+				.flatMap(mediaType -> ENCODINGS.stream().filter(mediaType::includes))
+				.findFirst().orElse(null);
+	}
+
+	//Whether the Accept-Encoding header accepts gzip: gzip, x-gzip or * with a quality above zero, unless gzip itself is
+	//refused with q=0
+	static boolean gzip(String acceptEncoding) {
+		if (Objects.isNull(acceptEncoding)) {
+			return false;
+		}
+
+		boolean accepted = false;
+
+		for (String element : acceptEncoding.split(",")) {
+			String[] parts = element.split(";");
+			String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+
+			if (!coding.equals("gzip") && !coding.equals("x-gzip") && !coding.equals("*")) {
+				continue;
+			}
+
+			double quality = 1;
+
+			for (int index = 1; index < parts.length; index++) {
+				String parameter = parts[index].trim();
+
+				if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+					try {
+						quality = Double.parseDouble(parameter.substring(2));
+					} catch (NumberFormatException e) {
+						quality = 0;
+					}
+				}
+			}
+
+			if (quality <= 0 && !coding.equals("*")) {
+				return false;
+			}
+			accepted |= quality > 0;
+		}
+		return accepted;
+	}
+
+	static String of(List<BookStoreData> page) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			ByteBuffer entry = ByteBuffer.allocate(2 * Long.BYTES);
+
+			for (BookStoreData bookStoreData : page) {
+				entry.clear();
+				entry.putLong(bookStoreData.getBookStoreId()).putLong(bookStoreData.getVersion());
+				digest.update(entry.array());
+			}
+			return "W/\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	//Returns the book store version an If-Match header asks for, or null when there is no header or it is "*".
+	//A value that is not one of our strong ETags can never match, so it is returned as -1. That includes weak ETags:
+	//If-Match compares strongly, and a weak ETag never matches.
+	static Long expectedVersion(String ifMatch) {
+		if (Objects.isNull(ifMatch) || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+			return null;
+		}
+
+		String value = ifMatch.trim();
+
+		if (value.length() < 2 || !value.startsWith("\"") || !value.endsWith("\"")) {
+			return -1L;
+		}
+
+		value = value.substring(1, value.length() - 1);
+		int dot = value.indexOf('.');
+
+		try {
+			return Long.valueOf(dot < 0 ? value : value.substring(0, dot));
+		} catch (NumberFormatException e) {
+			return -1L;
+		}
+	}
+}
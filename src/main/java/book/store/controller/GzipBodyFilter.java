@@ -0,0 +1,132 @@
+package book.store.controller;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+//Gzip-compresses the body of a response whose handler has set Content-Encoding: gzip itself. Tomcat's compression
+//(server.compression) leaves such a response alone, as it does any response with a strong ETag. A handler that
+//compresses this way sends an ETag naming the compressed body, and Vary: Accept-Encoding.
+@Component
+public class GzipBodyFilter extends OncePerRequestFilter {
+
+	private static final String GZIP = "gzip";
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		GzipResponse gzipResponse = new GzipResponse(response);
+		filterChain.doFilter(request, gzipResponse);
+		gzipResponse.finish();
+	}
+
+	private static class GzipResponse extends HttpServletResponseWrapper {
+		private ServletOutputStream outputStream;
+		private GZIPOutputStream gzip;
+		private boolean finished;
+
+		GzipResponse(HttpServletResponse response) {
+			super(response);
+		}
+
+		private boolean compressed() {
+			return GZIP.equals(getHeader(HttpHeaders.CONTENT_ENCODING));
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			if (Objects.nonNull(outputStream)) {
+				return outputStream;
+			}
+
+			ServletOutputStream target = super.getOutputStream();
+
+			if (!compressed()) {
+				return target;
+			}
+
+			gzip = new GZIPOutputStream(target, 8192);
+			outputStream = new ServletOutputStream() {
+				@Override
+				public boolean isReady() {
+					return target.isReady();
+				}
+
+				@Override
+				public void setWriteListener(WriteListener writeListener) {
+					target.setWriteListener(writeListener);
+				}
+
+				@Override
+				public void write(int b) throws IOException {
+					gzip.write(b);
+				}
+
+				@Override
+				public void write(byte[] b, int off, int len) throws IOException {
+					gzip.write(b, off, len);
+				}
+
+				@Override
+				public void flush() throws IOException {
+					gzip.flush();
+				}
+
+				@Override
+				public void close() throws IOException {
+					finish();
+					target.close();
+				}
+			};
+			return outputStream;
+		}
+
+		//The length of the uncompressed body does not apply to the compressed one
+		@Override
+		public void setHeader(String name, String value) {
+			if (!compressed() || !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+				super.setHeader(name, value);
+			}
+		}
+
+		@Override
+		public void addHeader(String name, String value) {
+			if (!compressed() || !HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+				super.addHeader(name, value);
+			}
+		}
+
+		@Override
+		public void setContentLength(int len) {
+			if (!compressed()) {
+				super.setContentLength(len);
+			}
+		}
+
+		@Override
+		public void setContentLengthLong(long len) {
+			if (!compressed()) {
+				super.setContentLengthLong(len);
+			}
+		}
+
+		void finish() throws IOException {
+			if (Objects.nonNull(gzip) && !finished) {
+				finished = true;
+				gzip.finish();
+			}
+		}
+	}
+}
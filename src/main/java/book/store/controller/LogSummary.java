@@ -0,0 +1,52 @@
+package book.store.controller;
+
+import java.util.function.Supplier;
+
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreOrder;
+
+//Short log renderings of request payloads. Lombok's toString() of a BookStoreData prints every customer, employee
+//and book, so the controller logs these summaries instead. The text is only built when the event is actually
+//logged, i.e. not for events that the level or the sampling filter turns away.
+public final class LogSummary {
+
+	//Longest rendering of a payload; longer ones are cut and end with the number of characters left out
+	public static final int MAX_LENGTH = 200;
+
+	private LogSummary() {
+	}
+
+	//The book store's own fields and the sizes of its child sets
+	public static Object of(BookStoreData bookStoreData) {
+		return lazy(() -> cap("BookStoreData(bookStoreId=" + bookStoreData.getBookStoreId() + ", bookStoreName="
+				+ bookStoreData.getBookStoreName() + ", customers=" + bookStoreData.getCustomers().size()
+				+ ", employees=" + bookStoreData.getEmployees().size() + ", books="
+				+ bookStoreData.getBooks().size() + ")"));
+	}
+
+	public static Object of(BookStoreOrder bookStoreOrder) {
+		return lazy(() -> cap("BookStoreOrder(orderId=" + bookStoreOrder.getOrderId() + ", customerId="
+				+ bookStoreOrder.getCustomerId() + ", lines=" + bookStoreOrder.getLines().size() + ")"));
+	}
+
+	//Any other payload or request value, cut at MAX_LENGTH
+	public static Object capped(Object value) {
+		return lazy(() -> cap(String.valueOf(value)));
+	}
+
+	static String cap(String text) {
+		if (text.length() <= MAX_LENGTH) {
+			return text;
+		}
+		return text.substring(0, MAX_LENGTH) + "...(" + (text.length() - MAX_LENGTH) + " more chars)";
+	}
+
+	private static Object lazy(Supplier<String> text) {
+		return new Object() {
+			@Override
+			public String toString() {
+				return text.get();
+			}
+		};
+	}
+}
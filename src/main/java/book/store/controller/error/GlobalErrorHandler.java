@@ -3,12 +3,20 @@ package book.store.controller.error;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
+import book.store.service.AdmissionRejectedException;
+import book.store.service.InsufficientStockException;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 
 //Tells Spring that this class is a global error handler
@@ -29,4 +37,78 @@ public class GlobalErrorHandler {
 		
 		return exception; 
 	}
+	
+	//Tells Spring that this is an exception handler method for the IllegalArgumentException.
+	//The service throws it when the request itself is wrong, so it is reported as a bad request.
+	@ExceptionHandler(IllegalArgumentException.class)
+	@ResponseStatus(code = HttpStatus.BAD_REQUEST)
+	public Map<String, String> handleIllegalArgumentException(IllegalArgumentException ex) {
+		Map<String, String> exception = new HashMap<String, String>();
+		String message = ex.toString();
+		log.error("Exception: {}", message);
+		
+		exception.put("message", message);
+		
+		return exception; 
+	}
+	
+	//Tells Spring that this is an exception handler method for the DataIntegrityViolationException.
+	//It is thrown when a write breaks a database constraint, such as a second customer with the same email.
+	@ExceptionHandler(DataIntegrityViolationException.class)
+	@ResponseStatus(code = HttpStatus.CONFLICT)
+	public Map<String, String> handleDataIntegrityViolationException(DataIntegrityViolationException ex) {
+		Map<String, String> exception = new HashMap<String, String>();
+		String message = ex.getMostSpecificCause().toString();
+		log.error("Exception: {}", message);
+		
+		exception.put("message", message);
+		
+		return exception; 
+	}
+	
+	//Tells Spring that this is an exception handler method for the InsufficientStockException.
+	//The reservation was valid but there are not enough copies left, so it conflicts with the current stock.
+	@ExceptionHandler(InsufficientStockException.class)
+	@ResponseStatus(code = HttpStatus.CONFLICT)
+	public Map<String, String> handleInsufficientStockException(InsufficientStockException ex) {
+		Map<String, String> exception = new HashMap<String, String>();
+		String message = ex.toString();
+		log.warn("Exception: {}", message);
+		
+		exception.put("message", message);
+		
+		return exception; 
+	}
+	
+	//Tells Spring that this is an exception handler method for the OptimisticLockingFailureException.
+	//It is thrown when the book store changed under the request. If the client sent If-Match its precondition failed (412);
+	//otherwise the request lost a race with another update (409).
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<Map<String, String>> handleOptimisticLockingFailureException(
+			OptimisticLockingFailureException ex, HttpServletRequest request) {
+		Map<String, String> exception = new HashMap<String, String>();
+		String message = ex.toString();
+		log.warn("Exception: {}", message);
+		
+		exception.put("message", message);
+		
+		HttpStatus status = Objects.nonNull(request.getHeader(HttpHeaders.IF_MATCH)) ? HttpStatus.PRECONDITION_FAILED
+				: HttpStatus.CONFLICT;
+		return ResponseEntity.status(status).body(exception);
+	}
+	
+	//Tells Spring that this is an exception handler method for the AdmissionRejectedException.
+	//The request was turned away before reaching the database, so the client is told when to retry.
+	@ExceptionHandler(AdmissionRejectedException.class)
+	public ResponseEntity<Map<String, String>> handleAdmissionRejectedException(AdmissionRejectedException ex) {
+		Map<String, String> exception = new HashMap<String, String>();
+		String message = ex.toString();
+		log.warn("Exception: {}", message);
+		
+		exception.put("message", message);
+		
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+				.body(exception);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package book.store.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//Returned by the bulk book load instead of echoing every stored row
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookBulkLoadSummary {
+	private Long bookStoreId;
+	private long booksInserted;
+	private int chunks;
+	private int chunkSize;
+	private long elapsedMillis;
+}
@@ -0,0 +1,20 @@
+package book.store.controller.model;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//Price aggregates for one genre of a book store, computed by the database with a GROUP BY
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookGenreStats {
+	private String genre;
+	private Long bookCount;
+	private BigDecimal minPrice;
+	private BigDecimal maxPrice;
+	private Double avgPrice;
+	private BigDecimal totalPrice;
+}
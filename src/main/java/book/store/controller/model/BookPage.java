@@ -0,0 +1,18 @@
+package book.store.controller.model;
+
+import java.util.List;
+
+import book.store.controller.model.BookStoreData.BookStoreBook;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//One page of a book store's book listing. next is passed back as "after" to get the following page and is null on
+//the last page.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookPage {
+	private List<BookStoreBook> books;
+	private String next;
+}
@@ -0,0 +1,17 @@
+package book.store.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//Stock of one book. Used to set the stock and returned after a reservation, with reserved holding the number of
+//copies just taken. Stock is kept out of BookStoreBook so reservations never invalidate the cached book store.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookStock {
+	private Long bookStoreId;
+	private Long bookId;
+	private int stock;
+	private int reserved;
+}
@@ -0,0 +1,16 @@
+package book.store.controller.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//Result of a multi-ID fetch. The book stores are in the order their IDs were requested; IDs without a book store
+//are listed in missingIds instead of failing the whole request.
+@Data
+@NoArgsConstructor
+public class BookStoreBatch {
+	private List<BookStoreData> bookStores = new ArrayList<>();
+	private List<Long> missingIds = new ArrayList<>();
+}
@@ -0,0 +1,29 @@
+package book.store.controller.model;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//One committed change, as sent by the change feed. entityId is the saved employee, customer or book (the book
+//store itself for BOOK_STORE_* changes); BOOKS_ADDED covers a bulk-loaded chunk of count books and has no entityId.
+//CUSTOMER_UPDATED follows the CUSTOMER_SAVED of a customer that belongs to other book stores as well: it has no
+//bookStoreId, and count is the number of other book stores whose content version went up.
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookStoreChange {
+
+	public enum Type {
+		BOOK_STORE_SAVED, BOOK_STORE_DELETED, EMPLOYEE_SAVED, CUSTOMER_SAVED, CUSTOMER_UPDATED, BOOK_SAVED, BOOKS_ADDED,
+		STOCK_SAVED
+	}
+
+	private long sequence;
+	private Type type;
+	private Long bookStoreId;
+	private Long entityId;
+	private int count;
+	private Instant committedAt;
+}
@@ -1,8 +1,16 @@
 package book.store.controller.model;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Set;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import book.store.entity.Customer;
@@ -26,8 +34,34 @@ public class BookStoreData {
     private Set<BookStoreEmployee> employees = new HashSet<>();
     private Set<BookStoreBook> books = new HashSet<>();
 
+    // The versions the data was read at. They are sent as the ETag header rather than in the body.
+    @JsonIgnore
+    private long version;
+    @JsonIgnore
+    private long contentVersion;
+
+    // Constructor used by the summary projection query. Only the book store's own columns are
+    // selected, so the customer, employee and book sets are left empty.
+    public BookStoreData(Long bookStoreId, String bookStoreName, String bookStoreAddress, String bookStoreCity,
+            String bookStoreState, String bookStoreZip, String bookStorePhone, long version) {
+        this.bookStoreId = bookStoreId;
+        this.bookStoreName = bookStoreName;
+        this.bookStoreAddress = bookStoreAddress;
+        this.bookStoreCity = bookStoreCity;
+        this.bookStoreState = bookStoreState;
+        this.bookStoreZip = bookStoreZip;
+        this.bookStorePhone = bookStorePhone;
+        this.version = version;
+    }
+
     // Constructor to convert BookStore entity to BookStoreData
     public BookStoreData(BookStore bookStore) {
+        this(bookStore, Include.ALL);
+    }
+
+    // Constructor to convert BookStore entity to BookStoreData, copying only the requested child sets.
+    // Child sets that are not requested are never touched, so their lazy collections stay unloaded.
+    public BookStoreData(BookStore bookStore, Set<Include> include) {
         bookStoreId = bookStore.getBookStoreId();
         bookStoreName = bookStore.getBookStoreName();
         bookStoreAddress = bookStore.getBookStoreAddress();
@@ -35,19 +69,51 @@ public class BookStoreData {
         bookStoreState = bookStore.getBookStoreState();
         bookStoreZip = bookStore.getBookStoreZip();
         bookStorePhone = bookStore.getBookStorePhone();
+        version = bookStore.getVersion();
+        contentVersion = bookStore.getContentVersion();
 
-        for (Customer customer : bookStore.getCustomers()) {
-            customers.add(new BookStoreCustomer(customer));
+        if (include.contains(Include.CUSTOMERS)) {
+            for (Customer customer : bookStore.getCustomers()) {
+                customers.add(new BookStoreCustomer(customer));
+            }
         }
 
-        for (Employee employee : bookStore.getEmployees()) {
-            employees.add(new BookStoreEmployee(employee));
-            
+        if (include.contains(Include.EMPLOYEES)) {
+            for (Employee employee : bookStore.getEmployees()) {
+                employees.add(new BookStoreEmployee(employee));
+            }
         }
-            
+
+        if (include.contains(Include.BOOKS)) {
             for (Book book : bookStore.getBook()) {
                 books.add(new BookStoreBook(book));
+            }
+        }
+    }
+
+    // The child sets a caller can ask for with the include= query parameter
+    public enum Include {
+        CUSTOMERS, EMPLOYEES, BOOKS;
+
+        public static final Set<Include> ALL = Collections.unmodifiableSet(EnumSet.allOf(Include.class));
 
+        // Parses values such as "customers,books". No values means every child set.
+        public static Set<Include> parse(Collection<String> values) {
+            if (Objects.isNull(values) || values.isEmpty()) {
+                return ALL;
+            }
+
+            Set<Include> include = EnumSet.noneOf(Include.class);
+
+            for (String value : values) {
+                try {
+                    include.add(Include.valueOf(value.trim().toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown include value '" + value
+                            + "'. Expected customers, employees or books.");
+                }
+            }
+            return include;
         }
     }
 
@@ -93,7 +159,7 @@ public class BookStoreData {
             public static class BookStoreBook {
                 private Long bookId;
                 private String genre;
-                private String price;
+                private BigDecimal price;
                 private String description;
                 private String author;
 
@@ -0,0 +1,31 @@
+package book.store.controller.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//Progress of a book store deletion. Returned when the deletion finishes, or by the status endpoint while an
+//asynchronous deletion is still running.
+@Data
+@NoArgsConstructor
+public class BookStoreDeletion {
+
+	public enum Status {
+		RUNNING, COMPLETED, FAILED
+	}
+
+	private String jobId;
+	private Long bookStoreId;
+	private Status status = Status.RUNNING;
+	private long customerLinksDeleted;
+	private long ordersDeleted;
+	private long employeesDeleted;
+	private long booksDeleted;
+	private int chunks;
+	private long elapsedMillis;
+	private String message;
+
+	public BookStoreDeletion(String jobId, Long bookStoreId) {
+		this.jobId = jobId;
+		this.bookStoreId = bookStoreId;
+	}
+}
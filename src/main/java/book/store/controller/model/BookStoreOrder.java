@@ -0,0 +1,59 @@
+package book.store.controller.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import book.store.entity.BookOrder;
+import book.store.entity.OrderLine;
+
+//An order as sent to checkout (customerId and lines with bookId and quantity) and as returned and journaled
+//once it has been priced. PENDING orders are accepted and journaled but not yet written to the database.
+@Data
+@NoArgsConstructor
+
+public class BookStoreOrder {
+
+	public enum Status {
+		PENDING, STORED
+	}
+
+	private String orderId;
+	private Long bookStoreId;
+	private Long customerId;
+	private Instant orderedAt;
+	private BigDecimal orderTotal;
+	private Status status;
+	private List<BookStoreOrderLine> lines = new ArrayList<>();
+
+	public BookStoreOrder(BookOrder order) {
+		orderId = order.getOrderId();
+		bookStoreId = order.getBookStore().getBookStoreId();
+		customerId = order.getCustomer().getCustomerId();
+		orderedAt = order.getOrderedAt();
+		orderTotal = order.getOrderTotal();
+		status = Status.STORED;
+
+		for (OrderLine line : order.getLines()) {
+			lines.add(new BookStoreOrderLine(line));
+		}
+	}
+
+	@Data
+	@NoArgsConstructor
+
+	public static class BookStoreOrderLine {
+		private Long bookId;
+		private int quantity;
+		private BigDecimal unitPrice;
+
+		public BookStoreOrderLine(OrderLine line) {
+			bookId = line.getBook().getBookId();
+			quantity = line.getQuantity();
+			unitPrice = line.getUnitPrice();
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package book.store.controller.model;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//Dashboard figures for one book store, served from BookStoreRollups. Revenue is grouped by each book's current
+//genre and author; revenueByAuthor holds only the top authors.
+@Data
+@NoArgsConstructor
+public class BookStoreStats {
+	private Long bookStoreId;
+	private long customers;
+	private long books;
+	private long orders;
+	private BigDecimal revenue = BigDecimal.ZERO;
+	private Map<String, Long> booksByGenre = new LinkedHashMap<>();
+	private Map<String, BigDecimal> revenueByGenre = new LinkedHashMap<>();
+	private Map<String, BigDecimal> revenueByAuthor = new LinkedHashMap<>();
+}
@@ -0,0 +1,14 @@
+package book.store.controller.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//The two version columns of a book store, read on their own to answer conditional GETs
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookStoreVersion {
+	private long version;
+	private long contentVersion;
+}
@@ -0,0 +1,31 @@
+package book.store.controller.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+//A book store found by the nearby search, with its distance in kilometers from the centroid of the ZIP code that
+//was searched from. Stores are located by the centroid of their own ZIP code, so the distance is approximate.
+@Data
+@NoArgsConstructor
+public class NearbyBookStore {
+	private Long bookStoreId;
+	private String bookStoreName;
+	private String bookStoreAddress;
+	private String bookStoreCity;
+	private String bookStoreState;
+	private String bookStoreZip;
+	private String bookStorePhone;
+	private double distanceKm;
+
+	public NearbyBookStore(BookStoreData bookStoreData, double distanceKm) {
+		bookStoreId = bookStoreData.getBookStoreId();
+		bookStoreName = bookStoreData.getBookStoreName();
+		bookStoreAddress = bookStoreData.getBookStoreAddress();
+		bookStoreCity = bookStoreData.getBookStoreCity();
+		bookStoreState = bookStoreData.getBookStoreState();
+		bookStoreZip = bookStoreData.getBookStoreZip();
+		bookStorePhone = bookStoreData.getBookStorePhone();
+		//To the meter
+		this.distanceKm = Math.round(distanceKm * 1000) / 1000.0;
+	}
+}
@@ -1,9 +1,85 @@
 package book.store.dao;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import book.store.controller.model.BookGenreStats;
 import book.store.entity.Book;
 
-public interface BookDao extends JpaRepository<Book, Long> {
+import jakarta.persistence.QueryHint;
+
+public interface BookDao extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book> {
+
+	//Cheapest-first listing of a book store's books in a price range. Served by idx_book_store_price. This query and
+	//the two below are kept in the query cache until the book table changes.
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+	@Query("select b from Book b where b.bookStore.bookStoreId = :bookStoreId "
+			+ "and b.price between :minPrice and :maxPrice order by b.price, b.bookId")
+	List<Book> findByPriceRange(@Param("bookStoreId") Long bookStoreId, @Param("minPrice") BigDecimal minPrice,
+			@Param("maxPrice") BigDecimal maxPrice, Limit limit);
+
+	//Cheapest-first listing of one genre in a price range. Served by idx_book_store_genre_price.
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+	@Query("select b from Book b where b.bookStore.bookStoreId = :bookStoreId and b.genre = :genre "
+			+ "and b.price between :minPrice and :maxPrice order by b.price, b.bookId")
+	List<Book> findByGenreAndPriceRange(@Param("bookStoreId") Long bookStoreId, @Param("genre") String genre,
+			@Param("minPrice") BigDecimal minPrice, @Param("maxPrice") BigDecimal maxPrice, Limit limit);
+
+	//Count, min, max, average and total price per genre, computed by the database
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+	@Query("select new book.store.controller.model.BookGenreStats(b.genre, count(b), min(b.price), max(b.price), "
+			+ "avg(b.price), sum(b.price)) from Book b where b.bookStore.bookStoreId = :bookStoreId "
+			+ "group by b.genre order by b.genre")
+	List<BookGenreStats> findGenreStats(@Param("bookStoreId") Long bookStoreId);
+
+	//{bookStoreId, genre, count} for every book store, for rebuilding BookStoreRollups
+	@Query("select b.bookStore.bookStoreId, b.genre, count(b) from Book b group by b.bookStore.bookStoreId, b.genre")
+	List<Object[]> countByBookStoreAndGenre();
+
+	//The given books of one book store, for pricing an order
+	@Query("select b from Book b where b.bookStore.bookStoreId = :bookStoreId and b.bookId in :bookIds")
+	List<Book> findByBookStoreIdAndBookIds(@Param("bookStoreId") Long bookStoreId,
+			@Param("bookIds") Collection<Long> bookIds);
+
+	//Takes quantity copies out of stock in a single statement. The row only changes while enough copies are left, so
+	//concurrent reservations can never oversell, and each one holds the row lock only for this statement and its
+	//commit instead of across a read-modify-write.
+	//The stock updates are native and name book_stock as their only query space. A JPQL update of Book would empty
+	//the whole book region of the second-level cache and drop every cached query on the book table, on every
+	//reservation. Stock is never read from a cached Book or by a cached query, so neither needs to change.
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book_stock"))
+	@Query(value = "update book set stock = stock - :quantity where book_id = :bookId "
+			+ "and book_store_id = :bookStoreId and stock >= :quantity", nativeQuery = true)
+	int reserveStock(@Param("bookStoreId") Long bookStoreId, @Param("bookId") Long bookId,
+			@Param("quantity") int quantity);
+
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book_stock"))
+	@Query(value = "update book set stock = :stock where book_id = :bookId and book_store_id = :bookStoreId",
+			nativeQuery = true)
+	int updateStock(@Param("bookStoreId") Long bookStoreId, @Param("bookId") Long bookId, @Param("stock") int stock);
+
+	@Query("select b.stock from Book b where b.bookId = :bookId and b.bookStore.bookStoreId = :bookStoreId")
+	Optional<Integer> findStock(@Param("bookStoreId") Long bookStoreId, @Param("bookId") Long bookId);
+
+	//The next chunk of a book store's book IDs, for deleting the books without loading them
+	@Query("select b.bookId from Book b where b.bookStore.bookStoreId = :bookStoreId order by b.bookId")
+	List<Long> findIdsByBookStoreId(@Param("bookStoreId") Long bookStoreId, Limit limit);
+
+	@Modifying
+	@Query("delete from Book b where b.bookId in :bookIds")
+	int deleteByBookIds(@Param("bookIds") List<Long> bookIds);
 
 }
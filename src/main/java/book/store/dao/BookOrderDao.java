@@ -0,0 +1,59 @@
+package book.store.dao;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import book.store.entity.BookOrder;
+
+//This is the DAO interface for the book_order and order_line tables. Orders are inserted by OrderWriter through
+//the EntityManager so that they go out in JDBC batches; this interface covers the reads and deletes.
+
+public interface BookOrderDao extends JpaRepository<BookOrder, String> {
+
+	//Which of the given orders are already stored, so that replaying the journal never inserts an order twice
+	@Query("select o.orderId from BookOrder o where o.orderId in :orderIds")
+	List<String> findStoredOrderIds(@Param("orderIds") Collection<String> orderIds);
+
+	@EntityGraph(attributePaths = "lines")
+	Optional<BookOrder> findWithLinesByOrderId(String orderId);
+
+	//Revenue of one book over all its orders, to move it between rollup groups when the book's genre or author changes
+	@Query("select coalesce(sum(l.quantity * l.unitPrice), 0) from OrderLine l where l.book.bookId = :bookId")
+	BigDecimal sumRevenueByBookId(@Param("bookId") Long bookId);
+
+	//The full recounts behind BookStoreRollups, one row per book store and group: {bookStoreId, group, value}
+
+	@Query("select o.bookStore.bookStoreId, count(o), coalesce(sum(o.orderTotal), 0) from BookOrder o "
+			+ "group by o.bookStore.bookStoreId")
+	List<Object[]> countOrdersByBookStore();
+
+	@Query("select o.bookStore.bookStoreId, b.genre, sum(l.quantity * l.unitPrice) from OrderLine l "
+			+ "join l.bookOrder o join l.book b group by o.bookStore.bookStoreId, b.genre")
+	List<Object[]> sumRevenueByBookStoreAndGenre();
+
+	@Query("select o.bookStore.bookStoreId, b.author, sum(l.quantity * l.unitPrice) from OrderLine l "
+			+ "join l.bookOrder o join l.book b group by o.bookStore.bookStoreId, b.author")
+	List<Object[]> sumRevenueByBookStoreAndAuthor();
+
+	//The next chunk of a book store's order IDs, for deleting the orders without loading them
+	@Query("select o.orderId from BookOrder o where o.bookStore.bookStoreId = :bookStoreId order by o.orderId")
+	List<String> findIdsByBookStoreId(@Param("bookStoreId") Long bookStoreId, Limit limit);
+
+	@Modifying
+	@Query("delete from OrderLine l where l.bookOrder.orderId in :orderIds")
+	int deleteLinesByOrderIds(@Param("orderIds") List<String> orderIds);
+
+	@Modifying
+	@Query("delete from BookOrder o where o.orderId in :orderIds")
+	int deleteByOrderIds(@Param("orderIds") List<String> orderIds);
+
+}
@@ -0,0 +1,55 @@
+package book.store.dao;
+
+import java.util.Objects;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import book.store.entity.Book;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+
+//Criteria for the filtered book listing, combined in BookStoreService and run through BookDao's
+//JpaSpecificationExecutor
+public final class BookSpecifications {
+
+	private BookSpecifications() {
+	}
+
+	public static Specification<Book> inBookStore(Long bookStoreId) {
+		return (root, query, cb) -> cb.equal(root.get("bookStore").get("bookStoreId"), bookStoreId);
+	}
+
+	public static Specification<Book> hasGenre(String genre) {
+		return (root, query, cb) -> cb.equal(root.get("genre"), genre);
+	}
+
+	public static Specification<Book> hasAuthor(String author) {
+		return (root, query, cb) -> cb.equal(root.get("author"), author);
+	}
+
+	//Keyset condition for the rows after (key, bookId) in "order by attribute, bookId", both ascending or both
+	//descending. The database sorts nulls lowest, so they come first ascending and last descending.
+	public static <T extends Comparable<? super T>> Specification<Book> after(String attribute, boolean descending,
+			T key, Long bookId) {
+		return (root, query, cb) -> {
+			Path<T> value = root.get(attribute);
+			Path<Long> id = root.get("bookId");
+			Predicate sameKey = Objects.isNull(key) ? cb.isNull(value) : cb.equal(value, key);
+			Predicate nextId = descending ? cb.lessThan(id, bookId) : cb.greaterThan(id, bookId);
+
+			if (Objects.isNull(key)) {
+				return descending ? cb.and(sameKey, nextId) : cb.or(cb.and(sameKey, nextId), cb.isNotNull(value));
+			}
+
+			Predicate nextKey = descending ? cb.or(cb.lessThan(value, key), cb.isNull(value))
+					: cb.greaterThan(value, key);
+			return cb.or(nextKey, cb.and(sameKey, nextId));
+		};
+	}
+
+	//Keyset condition for "order by bookId"
+	public static Specification<Book> afterId(boolean descending, Long bookId) {
+		return (root, query, cb) -> descending ? cb.lessThan(root.get("bookId"), bookId)
+				: cb.greaterThan(root.get("bookId"), bookId);
+	}
+}
@@ -1,9 +1,92 @@
 package book.store.dao;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreVersion;
 import book.store.entity.BookStore;
+import jakarta.persistence.QueryHint;
 
 public interface BookStoreDao extends JpaRepository<BookStore, Long>  {
 
+	//Selects only the book store columns for one page of the summary listing. The page starts after the given
+	//book store ID (keyset pagination), so every page costs the same no matter how deep the client has paged.
+	@Query("select new book.store.controller.model.BookStoreData(bs.bookStoreId, bs.bookStoreName, "
+			+ "bs.bookStoreAddress, bs.bookStoreCity, bs.bookStoreState, bs.bookStoreZip, bs.bookStorePhone, "
+			+ "bs.version) "
+			+ "from BookStore bs where bs.bookStoreId > :after order by bs.bookStoreId")
+	List<BookStoreData> findSummariesAfter(@Param("after") Long after, Limit limit);
+
+	//The same summary columns for the given book stores, in no particular order
+	@Query("select new book.store.controller.model.BookStoreData(bs.bookStoreId, bs.bookStoreName, "
+			+ "bs.bookStoreAddress, bs.bookStoreCity, bs.bookStoreState, bs.bookStoreZip, bs.bookStorePhone, "
+			+ "bs.version) "
+			+ "from BookStore bs where bs.bookStoreId in :bookStoreIds")
+	List<BookStoreData> findSummariesByBookStoreIdIn(@Param("bookStoreIds") Collection<Long> bookStoreIds);
+
+	//{bookStoreId, zip} for every book store, for rebuilding NearbyStoreIndex
+	@Query("select bs.bookStoreId, bs.bookStoreZip from BookStore bs")
+	List<Object[]> findAllZips();
+
+	//Each finder below fetch-joins exactly one child collection. Running them one after another in the same
+	//transaction fills in the same BookStore instance without the cartesian product a multi-collection join makes.
+	@EntityGraph(attributePaths = "customers")
+	Optional<BookStore> findWithCustomersByBookStoreId(Long bookStoreId);
+
+	@EntityGraph(attributePaths = "employees")
+	Optional<BookStore> findWithEmployeesByBookStoreId(Long bookStoreId);
+
+	@EntityGraph(attributePaths = "book")
+	Optional<BookStore> findWithBooksByBookStoreId(Long bookStoreId);
+
+	//The same three fetch joins for a batch of book stores, so a multi-ID fetch also runs a fixed number of queries
+	@EntityGraph(attributePaths = "customers")
+	List<BookStore> findWithCustomersByBookStoreIdIn(Collection<Long> bookStoreIds);
+
+	@EntityGraph(attributePaths = "employees")
+	List<BookStore> findWithEmployeesByBookStoreIdIn(Collection<Long> bookStoreIds);
+
+	@EntityGraph(attributePaths = "book")
+	List<BookStore> findWithBooksByBookStoreIdIn(Collection<Long> bookStoreIds);
+
+	//Reads only the version columns, so a conditional GET can be answered without loading the book store. The result
+	//stays in the query cache until the book_store table changes.
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+	@Query("select new book.store.controller.model.BookStoreVersion(bs.version, bs.contentVersion) "
+			+ "from BookStore bs where bs.bookStoreId = :bookStoreId")
+	Optional<BookStoreVersion> findVersionByBookStoreId(@Param("bookStoreId") Long bookStoreId);
+
+	//Marks a change to one of the book store's children. The update also locks the book store row until the
+	//transaction ends, so concurrent child writes to the same store are applied one after another.
+	@Modifying
+	@Query("update BookStore bs set bs.contentVersion = bs.contentVersion + 1 where bs.bookStoreId = :bookStoreId")
+	int incrementContentVersion(@Param("bookStoreId") Long bookStoreId);
+
+	//Marks a change to a customer in every other book store the customer belongs to, in one statement driven by the
+	//join table's customer_id index however many book stores that is. Naming book_store as the query space leaves the
+	//second-level cache regions alone and only invalidates the cached queries on the table.
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book_store"))
+	@Query(value = "update book_store set content_version = content_version + 1 where book_store_id in "
+			+ "(select book_store_id from book_store_customer where customer_id = :customerId) "
+			+ "and book_store_id <> :bookStoreId", nativeQuery = true)
+	int incrementContentVersionOfCustomerStores(@Param("customerId") Long customerId,
+			@Param("bookStoreId") Long bookStoreId);
+
+	//Deletes the book store row alone. Its children must already be gone.
+	@Modifying
+	@Query("delete from BookStore bs where bs.bookStoreId = :bookStoreId")
+	int deleteByBookStoreId(@Param("bookStoreId") Long bookStoreId);
+
 }
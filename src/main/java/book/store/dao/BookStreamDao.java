@@ -0,0 +1,59 @@
+package book.store.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.stream.Stream;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import book.store.entity.Book;
+import book.store.entity.BookStore;
+
+//Streams books with plain JDBC over the streaming connection pool (see StreamingReadConfig), so a large result is
+//read a fetch size at a time. The books are new, unmanaged instances; their BookStore only carries its ID.
+public class BookStreamDao implements AutoCloseable {
+
+	private static final String SELECT = "select book_id, book_store_id, genre, price_amount, description, author "
+			+ "from book";
+
+	private final HikariDataSource dataSource;
+	private final JdbcTemplate jdbcTemplate;
+
+	public BookStreamDao(HikariDataSource dataSource, int fetchSize) {
+		this.dataSource = dataSource;
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.setFetchSize(fetchSize);
+	}
+
+	//Streams a book store's books in ID order. The stream holds a connection until it is closed.
+	public Stream<Book> streamByBookStoreId(Long bookStoreId) {
+		return jdbcTemplate.queryForStream(SELECT + " where book_store_id = ? order by book_id", this::book,
+				bookStoreId);
+	}
+
+	//Streams every book in ID order, for rebuilding the search index. Same rules as streamByBookStoreId.
+	public Stream<Book> streamAll() {
+		return jdbcTemplate.queryForStream(SELECT + " order by book_id", this::book);
+	}
+
+	@Override
+	public void close() {
+		dataSource.close();
+	}
+
+	private Book book(ResultSet resultSet, int row) throws SQLException {
+		BookStore bookStore = new BookStore();
+		bookStore.setBookStoreId(resultSet.getLong("book_store_id"));
+
+		Book book = new Book();
+		book.setBookId(resultSet.getLong("book_id"));
+		book.setBookStore(bookStore);
+		book.setGenre(resultSet.getString("genre"));
+		book.setPrice(resultSet.getBigDecimal("price_amount"));
+		book.setDescription(resultSet.getString("description"));
+		book.setAuthor(resultSet.getString("author"));
+		return book;
+	}
+}
@@ -1,14 +1,63 @@
 package book.store.dao;
 
+import java.util.List;
+import java.util.Optional;
+
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import book.store.entity.Customer;
+import jakarta.persistence.QueryHint;
 
 //This is the DAO interface for the customer table. The interface extends the JpaRepository interface that is
 //used to perform CRUD operations on the customer table. It generates the SQL statements using its interfaces. 
 
 public interface CustomerDao extends JpaRepository<Customer, Long> {
 
+	//Inserts the book_store_customer join row directly so that adding a customer never has to initialize
+	//the book store's customers collection. Naming the table as the query space limits the second-level cache
+	//eviction to the collections mapped on it.
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book_store_customer"))
+	@Query(value = "insert into book_store_customer (book_store_id, customer_id) values (:bookStoreId, :customerId)",
+			nativeQuery = true)
+	void addCustomerToBookStore(@Param("bookStoreId") Long bookStoreId, @Param("customerId") Long customerId);
+
+	//Returns the IDs of every book store the customer belongs to, read from the join table alone
+	@Query(value = "select book_store_id from book_store_customer where customer_id = :customerId", nativeQuery = true)
+	List<Long> findBookStoreIds(@Param("customerId") Long customerId);
+
+	//Probes the join table's primary key for a single membership row
+	@Query(value = "select count(*) from book_store_customer where book_store_id = :bookStoreId "
+			+ "and customer_id = :customerId", nativeQuery = true)
+	long countMembership(@Param("bookStoreId") Long bookStoreId, @Param("customerId") Long customerId);
+
+	default boolean isCustomerOfBookStore(Long bookStoreId, Long customerId) {
+		return countMembership(bookStoreId, customerId) > 0;
+	}
+
+	//The next chunk of customer IDs linked to the book store, for removing the links
+	@Query(value = "select customer_id from book_store_customer where book_store_id = :bookStoreId "
+			+ "order by customer_id limit :limit", nativeQuery = true)
+	List<Long> findCustomerIdsByBookStoreId(@Param("bookStoreId") Long bookStoreId, @Param("limit") int limit);
+
+	//Removes book store links only; the customers themselves may still belong to other book stores
+	@Modifying
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book_store_customer"))
+	@Query(value = "delete from book_store_customer where book_store_id = :bookStoreId "
+			+ "and customer_id in (:customerIds)", nativeQuery = true)
+	int removeCustomersFromBookStore(@Param("bookStoreId") Long bookStoreId,
+			@Param("customerIds") List<Long> customerIds);
+
+	//{bookStoreId, count} for every book store with customers, for rebuilding BookStoreRollups
+	@Query(value = "select book_store_id, count(*) from book_store_customer group by book_store_id", nativeQuery = true)
+	List<Object[]> countByBookStore();
 
+	//Looks a customer up through the unique email index
+	Optional<Customer> findByCustomerEmail(String customerEmail);
 
 }
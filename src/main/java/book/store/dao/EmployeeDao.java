@@ -1,6 +1,12 @@
 package book.store.dao;
 
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import book.store.entity.Employee;
 
@@ -9,4 +15,12 @@ import book.store.entity.Employee;
 
 public interface EmployeeDao extends JpaRepository<Employee, Long> {
 
+	//The next chunk of a book store's employee IDs, for deleting the employees without loading them
+	@Query("select e.employeeId from Employee e where e.bookStore.bookStoreId = :bookStoreId order by e.employeeId")
+	List<Long> findIdsByBookStoreId(@Param("bookStoreId") Long bookStoreId, Limit limit);
+
+	@Modifying
+	@Query("delete from Employee e where e.employeeId in :employeeIds")
+	int deleteByEmployeeIds(@Param("employeeIds") List<Long> employeeIds);
+
 }
\ No newline at end of file
@@ -1,34 +1,76 @@
 package book.store.entity;
 
+import java.math.BigDecimal;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.Version;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 @Entity  
 @Data
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book")
+//Every index ends with book_id (InnoDB appends the primary key to the first two implicitly), so the keyset pages of
+//the book listing are index range scans for each filter and sort it offers, except author and genre together
+//sorted by price.
+@Table(indexes = {
+		@Index(name = "idx_book_store_genre_price", columnList = "book_store_id, genre, price_amount"),
+		@Index(name = "idx_book_store_price", columnList = "book_store_id, price_amount"),
+		@Index(name = "idx_book_store_genre", columnList = "book_store_id, genre, book_id"),
+		@Index(name = "idx_book_store_author", columnList = "book_store_id, author, book_id"),
+		@Index(name = "idx_book_store_genre_author", columnList = "book_store_id, genre, author, book_id"),
+		@Index(name = "idx_book_store_author_price", columnList = "book_store_id, author, price_amount, book_id") })
 
 
 public class Book {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "book_id")
+	@TableGenerator(name = "book_id", table = "id_generator", pkColumnName = "sequence_name",
+			valueColumnName = "next_val", pkColumnValue = "book", allocationSize = 50)
 	private Long bookId;
 	private String genre;
-	private String price;
+	
+	//Stored as an exact decimal so price filters, sorts and totals can run in SQL and use the indexes below.
+	//The column replaces the original varchar price column, which PriceColumnMigration copies over.
+	@Column(name = "price_amount", precision = 10, scale = 2)
+	private BigDecimal price;
 	private String description;
 	private String author;
 	
+	@Version
+	@ColumnDefault("0")
+	@Column(nullable = false)
+	private long version;
+	
+	//Copies in stock. Only the conditional updates in BookDao change it, never an entity update, so saving a book
+	//cannot overwrite a concurrent reservation.
+	@ColumnDefault("0")
+	@Column(nullable = false, updatable = false)
+	private int stock;
+	
 	
 	@EqualsAndHashCode.Exclude
 	@ToString.Exclude
-	@ManyToOne(cascade = CascadeType.ALL)
+	@ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
 	@JoinColumn(name = "book_store_id")
 	private BookStore bookStore;
 	
@@ -0,0 +1,60 @@
+package book.store.entity;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.Table;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+//A customer's purchase at a book store. "order" is a reserved word in SQL, hence the table name.
+@Entity
+@Data
+@Table(name = "book_order", indexes = @Index(name = "idx_book_order_store", columnList = "book_store_id, ordered_at"))
+
+
+public class BookOrder {
+
+	//Assigned at checkout, before the order is stored, so that an order replayed from the journal can be
+	//recognised if it was already written
+	@Id
+	@Column(length = 36)
+	private String orderId;
+	
+	private Instant orderedAt;
+	
+	@Column(precision = 12, scale = 2)
+	private BigDecimal orderTotal;
+	
+	
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "book_store_id", nullable = false)
+	private BookStore bookStore;
+	
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "customer_id", nullable = false)
+	private Customer customer;
+	
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	@OneToMany(mappedBy = "bookOrder", cascade = CascadeType.PERSIST)
+	private List<OrderLine> lines = new ArrayList<>();
+	
+	
+}
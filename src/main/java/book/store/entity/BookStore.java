@@ -4,6 +4,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import jakarta.persistence.CascadeType;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -12,12 +13,18 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.Version;
+
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
+
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 @Entity  
 @Data
+//Deliberately not in the second-level cache; see SecondLevelCacheConfig
 
 
 
@@ -34,8 +41,23 @@ public class BookStore {
 	private String bookStoreZip;
 	private String bookStorePhone;
 	
+	//Bumped by Hibernate on every update of the book store's own columns; guards PUT against lost updates
+	@Version
+	@ColumnDefault("0")
+	@Column(nullable = false)
+	private long version;
+	
+	//Bumped by BookStoreService whenever a customer, employee or book of the store changes. Together with version
+	//it identifies the full BookStoreData representation, so GET can answer If-None-Match from these two columns.
+	//Only that increment query writes it: entity updates leave the column alone, so an update of the book store
+	//can neither conflict with nor undo a concurrent child write.
+	@ColumnDefault("0")
+	@Column(nullable = false, updatable = false)
+	private long contentVersion;
+	
 	@EqualsAndHashCode.Exclude
 	@ToString.Exclude
+	@BatchSize(size = 50)
 	@ManyToMany(cascade = CascadeType.ALL)
 	@JoinTable(name = "book_store_customer", joinColumns = @JoinColumn(name = "book_store_id"),
 	inverseJoinColumns = @JoinColumn (name = "customer_id"))
@@ -44,12 +66,14 @@ public class BookStore {
 	
 	@EqualsAndHashCode.Exclude
 	@ToString.Exclude
+	@BatchSize(size = 50)
 	@OneToMany(mappedBy = "bookStore", cascade = CascadeType.ALL, orphanRemoval = true)
 	private Set<Employee> employees = new HashSet<>();
 	
 	
 	@EqualsAndHashCode.Exclude
 	@ToString.Exclude
+	@BatchSize(size = 50)
 	@OneToMany(mappedBy = "bookStore", cascade = CascadeType.ALL)
 	private Set<Book> book = new HashSet<>();
 
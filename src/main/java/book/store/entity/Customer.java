@@ -3,6 +3,11 @@ package book.store.entity;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -10,24 +15,38 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToMany;
+import jakarta.persistence.Table;
+import jakarta.persistence.TableGenerator;
+import jakarta.persistence.UniqueConstraint;
+import jakarta.persistence.Version;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.ToString;
 
 @Entity  
 @Data
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customer")
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_customer_email", columnNames = "customer_email"))
 
 
 public class Customer {
 	
 @Id
-@GeneratedValue(strategy = GenerationType.IDENTITY)
+@GeneratedValue(strategy = GenerationType.TABLE, generator = "customer_id")
+@TableGenerator(name = "customer_id", table = "id_generator", pkColumnName = "sequence_name",
+		valueColumnName = "next_val", pkColumnValue = "customer", allocationSize = 50)
 
-private Long CustomerId;
+private Long customerId;
 private String customerFirstName;
 private String customerLastName;
 private String customerEmail;
 
+@Version
+@ColumnDefault("0")
+@Column(nullable = false)
+private long version;
+
 
 
 
@@ -35,7 +54,7 @@ private String customerEmail;
 @EqualsAndHashCode.Exclude
 @ToString.Exclude
 @ManyToMany (mappedBy = "customers", cascade = CascadeType.PERSIST)
-private Set <BookStore> BookStores = new HashSet<>();
+private Set <BookStore> bookStores = new HashSet<>();
 
 
 }
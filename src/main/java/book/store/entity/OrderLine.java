@@ -0,0 +1,50 @@
+package book.store.entity;
+
+import java.math.BigDecimal;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.TableGenerator;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+@Entity
+@Data
+
+
+public class OrderLine {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.TABLE, generator = "order_line_id")
+	@TableGenerator(name = "order_line_id", table = "id_generator", pkColumnName = "sequence_name",
+			valueColumnName = "next_val", pkColumnValue = "order_line", allocationSize = 50)
+	private Long orderLineId;
+	
+	private int quantity;
+	
+	//The book's price when the order was placed
+	@Column(precision = 10, scale = 2)
+	private BigDecimal unitPrice;
+	
+	
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "order_id", nullable = false)
+	private BookOrder bookOrder;
+	
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "book_id", nullable = false)
+	private Book book;
+	
+	
+}
@@ -0,0 +1,139 @@
+package book.store.service;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+//Limits how many BookStoreService calls can use the database at once, sized to the JDBC pool. With virtual threads
+//there is no longer a small request thread pool to hold load back, so without this gate thousands of requests would
+//queue inside Hikari and time out together. The gate runs before the transaction interceptor, so a waiting request
+//holds no connection.
+//
+//Only the @Transactional methods and those marked TakesConnection are gated; cache hits, the change feed and the
+//order journal never wait for a permit. Work that borrows connections outside such a call, such as the chunk
+//transactions of an asynchronous deletion or the read-only transactions of the cached reads, goes through admit()
+//or await(). A thread that already holds a permit does not take a second one.
+//
+//In fail-fast mode a request that finds no free permit is rejected at once; in queue mode it waits up to max-wait.
+//Rejected requests get 503 with Retry-After.
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "book-store.admission.enabled", havingValue = "true")
+public class AdmissionGate {
+
+	public enum Mode {
+		FAIL_FAST, QUEUE
+	}
+
+	private final Semaphore permits;
+	private final Mode mode;
+	private final Duration maxWait;
+	private final Duration retryAfter;
+	private final Counter rejected;
+	//Whether the current thread holds a permit
+	private final ThreadLocal<Boolean> admitted = ThreadLocal.withInitial(() -> false);
+
+	public AdmissionGate(@Value("${book-store.admission.permits}") int permits,
+			@Value("${book-store.admission.mode:queue}") Mode mode,
+			@Value("${book-store.admission.max-wait:200ms}") Duration maxWait,
+			@Value("${book-store.admission.retry-after:1s}") Duration retryAfter, MeterRegistry meterRegistry) {
+		this.permits = new Semaphore(permits, true);
+		this.mode = mode;
+		this.maxWait = maxWait;
+		this.retryAfter = retryAfter;
+
+		rejected = Counter.builder("book_store.admission.rejected")
+				.description("Requests turned away because no database permit was free").register(meterRegistry);
+		Gauge.builder("book_store.admission.available", this.permits, Semaphore::availablePermits)
+				.description("Database permits currently free").register(meterRegistry);
+		Gauge.builder("book_store.admission.waiting", this.permits, Semaphore::getQueueLength)
+				.description("Requests waiting for a database permit").register(meterRegistry);
+	}
+
+	@Around("within(book.store.service.BookStoreService) && "
+			+ "(@annotation(org.springframework.transaction.annotation.Transactional) "
+			+ "|| @annotation(book.store.service.TakesConnection))")
+	public Object admit(ProceedingJoinPoint joinPoint) throws Throwable {
+		if (admitted.get()) {
+			return joinPoint.proceed();
+		}
+
+		enter();
+
+		try {
+			return joinPoint.proceed();
+		} finally {
+			leave();
+		}
+	}
+
+	//Runs the work under a permit, waiting for one as the mode says
+	public <T> T admit(Supplier<T> work) {
+		if (admitted.get()) {
+			return work.get();
+		}
+
+		enter();
+
+		try {
+			return work.get();
+		} finally {
+			leave();
+		}
+	}
+
+	//Runs background work under a permit, waiting for one however long it takes instead of being rejected
+	public <T> T await(Supplier<T> work) {
+		if (admitted.get()) {
+			return work.get();
+		}
+
+		permits.acquireUninterruptibly();
+		admitted.set(true);
+
+		try {
+			return work.get();
+		} finally {
+			leave();
+		}
+	}
+
+	private void enter() {
+		boolean acquired;
+
+		try {
+			acquired = mode == Mode.FAIL_FAST ? permits.tryAcquire()
+					: permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			acquired = false;
+		}
+
+		if (!acquired) {
+			rejected.increment();
+			throw new AdmissionRejectedException("The book store service is at capacity. Try again later.",
+					retryAfter);
+		}
+		admitted.set(true);
+	}
+
+	private void leave() {
+		admitted.remove();
+		permits.release();
+	}
+}
@@ -0,0 +1,20 @@
+package book.store.service;
+
+import java.time.Duration;
+
+import lombok.Getter;
+
+//Thrown when a request cannot get into BookStoreService because every database permit is in use.
+//GlobalErrorHandler turns it into 503 Service Unavailable with a Retry-After header.
+@Getter
+public class AdmissionRejectedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Duration retryAfter;
+
+	public AdmissionRejectedException(String message, Duration retryAfter) {
+		super(message);
+		this.retryAfter = retryAfter;
+	}
+}
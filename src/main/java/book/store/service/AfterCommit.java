@@ -0,0 +1,25 @@
+package book.store.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+//Runs side effects of a write (cache invalidation, index updates) only once the surrounding transaction has
+//committed. Outside a transaction the action runs straight away.
+final class AfterCommit {
+
+	private AfterCommit() {
+	}
+
+	static void run(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
+	}
+}
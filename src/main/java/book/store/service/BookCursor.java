@@ -0,0 +1,96 @@
+package book.store.service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Objects;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+
+import book.store.dao.BookSpecifications;
+import book.store.entity.Book;
+
+//The opaque "after" token of the book listing: the order it was issued for plus the sort key and ID of the last book
+//on the page. It is URL-safe Base64 so that clients pass it back unchanged instead of building their own.
+final class BookCursor {
+
+	//Sort orders of the book listing. Every order ends with the book ID so that keys are unique and pages stable.
+	enum Order {
+		ID, PRICE, AUTHOR
+	}
+
+	private final Order order;
+	private final boolean descending;
+
+	//Parses "id", "price" or "author", with a leading "-" for descending
+	BookCursor(String sort) {
+		String name = Objects.isNull(sort) || sort.isBlank() ? "id" : sort.trim();
+		descending = name.startsWith("-");
+
+		try {
+			order = Order.valueOf(name.substring(descending ? 1 : 0).toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown sort " + sort + ". Use id, price or author, "
+					+ "with a leading - for descending.");
+		}
+	}
+
+	Sort sort() {
+		Direction direction = descending ? Direction.DESC : Direction.ASC;
+
+		return switch (order) {
+		case ID -> Sort.by(direction, "bookId");
+		case PRICE -> Sort.by(direction, "price", "bookId");
+		case AUTHOR -> Sort.by(direction, "author", "bookId");
+		};
+	}
+
+	//The token for the page after the given book
+	String encode(Book last) {
+		String key = switch (order) {
+		case ID -> "";
+		case PRICE -> Objects.isNull(last.getPrice()) ? null : last.getPrice().toPlainString();
+		case AUTHOR -> last.getAuthor();
+		};
+		String token = prefix() + last.getBookId() + "\n" + (Objects.isNull(key) ? "-" : "=" + key);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+	}
+
+	//The keyset condition for the page after the one that returned the token
+	Specification<Book> after(String token) {
+		String[] parts;
+
+		try {
+			parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\n", 3);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Invalid cursor " + token + ".");
+		}
+
+		if (parts.length != 3 || !(parts[0] + "\n").equals(prefix()) || parts[2].isEmpty()) {
+			throw new IllegalArgumentException("Cursor " + token + " was not issued for this sort order.");
+		}
+
+		Long bookId;
+		String key = parts[2].startsWith("=") ? parts[2].substring(1) : null;
+
+		try {
+			bookId = Long.valueOf(parts[1]);
+
+			return switch (order) {
+			case ID -> BookSpecifications.afterId(descending, bookId);
+			case PRICE -> BookSpecifications.after("price", descending,
+					Objects.isNull(key) ? null : new BigDecimal(key), bookId);
+			case AUTHOR -> BookSpecifications.after("author", descending, key, bookId);
+			};
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid cursor " + token + ".");
+		}
+	}
+
+	private String prefix() {
+		return (descending ? "-" : "") + order.name().toLowerCase(Locale.ROOT) + "\n";
+	}
+}
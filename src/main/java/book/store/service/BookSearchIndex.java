@@ -0,0 +1,837 @@
+package book.store.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import book.store.dao.BookStreamDao;
+import book.store.entity.Book;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+//Embedded inverted index over each book's author, genre and description. There is one index per book store,
+//so a search only ever looks at the postings of that store. Results are ranked with BM25; author and genre terms
+//count twice as much as description terms.
+//
+//The index lives in memory only. It is rebuilt from BookStreamDao on startup and kept current by BookStoreService
+//after each committed write. Writes that arrive while a rebuild runs go to the current index and are replayed onto
+//the new one before it is swapped in, so none are lost. The book_store.search.* gauges report its size, including
+//the heap taken by its arrays. BookSearchIndexBenchmark measures search latency and the heap actually retained.
+@Component
+@Slf4j
+public class BookSearchIndex implements ApplicationRunner {
+
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+	private static final int FIELD_BOOST = 2;
+	private static final int BLOCK_SIZE = 64;
+
+	//Terms in more than this share of a book store's books are common terms. They add to the score of books found
+	//through the other terms of a query but do not find books themselves, much like stop words that still count.
+	private static final double COMMON_TERM_CUTOFF = 0.05;
+
+	//Rough heap cost of a term's HashMap node, key string and postings object, including the padding of its
+	//small arrays, and of an array header; the postings and per-book arrays themselves are counted from their
+	//lengths
+	private static final long BYTES_PER_TERM = 160;
+	private static final long BYTES_PER_ARRAY = 16;
+
+	//Deepest hit a search can reach, offset plus limit. The top-hits heap holds that many hits, so an unbounded
+	//offset would make a search keep every match.
+	public static final int MAX_RESULTS = 1000;
+
+	private volatile Map<Long, StoreIndex> stores = new ConcurrentHashMap<>();
+
+	//Guards pendingUpdates. While a rebuild runs it holds every write applied to the current index since the
+	//rebuild started; otherwise it is null.
+	private final Object updateLock = new Object();
+	private List<Consumer<Map<Long, StoreIndex>>> pendingUpdates;
+
+	@Autowired
+	private BookStreamDao bookStreamDao;
+
+	@Value("${book-store.search.rebuild-on-startup:true}")
+	private boolean rebuildOnStartup;
+
+	public BookSearchIndex(MeterRegistry meterRegistry) {
+		Gauge.builder("book_store.search.books", this, index -> index.totals()[0])
+				.description("Books in the search index").register(meterRegistry);
+		Gauge.builder("book_store.search.postings", this, index -> index.totals()[1])
+				.description("Term postings in the search index").register(meterRegistry);
+		Gauge.builder("book_store.search.estimated.bytes", this, index -> index.totals()[2])
+				.description("Estimated heap used by the search index").baseUnit("bytes").register(meterRegistry);
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		if (rebuildOnStartup) {
+			rebuild();
+		}
+	}
+
+	//Adds the book, or replaces what was indexed for it before
+	public void index(Long bookStoreId, Book book) {
+		Long bookId = book.getBookId();
+		Map<String, Integer> terms = terms(book);
+		update(target -> target.computeIfAbsent(bookStoreId, id -> new StoreIndex()).add(bookId, terms));
+	}
+
+	public void removeBookStore(Long bookStoreId) {
+		update(target -> target.remove(bookStoreId));
+	}
+
+	//Returns the IDs of the best matching books of the book store, best first, skipping the first offset hits.
+	//Throws IllegalArgumentException when offset is negative or offset plus limit is more than MAX_RESULTS.
+	public List<Long> search(Long bookStoreId, String query, int offset, int limit) {
+		if (offset < 0 || limit < 1 || offset > MAX_RESULTS - limit) {
+			throw new IllegalArgumentException("Offset must be between 0 and " + MAX_RESULTS + " minus the limit, not "
+					+ offset + " with a limit of " + limit + ".");
+		}
+
+		StoreIndex store = stores.get(bookStoreId);
+		List<String> terms = new ArrayList<>();
+		tokenize(query, 1, terms);
+
+		if (Objects.isNull(store) || terms.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return store.search(terms, offset, limit);
+	}
+
+	//Reads every book through BookStreamDao and swaps in the new index when it is complete,
+	//so searches keep using the old index while the rebuild runs
+	public void rebuild() {
+		long started = System.currentTimeMillis();
+		Map<Long, StoreIndex> rebuilt = new ConcurrentHashMap<>();
+
+		synchronized (updateLock) {
+			pendingUpdates = new ArrayList<>();
+		}
+
+		try {
+			try (Stream<Book> books = bookStreamDao.streamAll()) {
+				books.forEach(book -> {
+					Long bookStoreId = book.getBookStore().getBookStoreId();
+					rebuilt.computeIfAbsent(bookStoreId, id -> new StoreIndex()).add(book.getBookId(), terms(book));
+				});
+			}
+
+			//A write may have committed after the stream's snapshot was taken. Replaying it is harmless when the
+			//snapshot already has it: adding a book replaces it.
+			synchronized (updateLock) {
+				pendingUpdates.forEach(update -> update.accept(rebuilt));
+				stores = rebuilt;
+			}
+		} finally {
+			synchronized (updateLock) {
+				pendingUpdates = null;
+			}
+		}
+
+		long[] totals = totals();
+		log.info("Search index rebuilt in {} ms: {} books, {} postings", System.currentTimeMillis() - started,
+				totals[0], totals[1]);
+	}
+
+	private void update(Consumer<Map<Long, StoreIndex>> update) {
+		synchronized (updateLock) {
+			update.accept(stores);
+
+			if (Objects.nonNull(pendingUpdates)) {
+				pendingUpdates.add(update);
+			}
+		}
+	}
+
+	//Books, postings and estimated bytes over all book stores
+	private long[] totals() {
+		long[] totals = new long[3];
+
+		for (StoreIndex store : stores.values()) {
+			long[] storeTotals = store.totals();
+
+			for (int i = 0; i < totals.length; i++) {
+				totals[i] += storeTotals[i];
+			}
+		}
+		return totals;
+	}
+
+	private static Map<String, Integer> terms(Book book) {
+		List<String> tokens = new ArrayList<>();
+		tokenize(book.getAuthor(), FIELD_BOOST, tokens);
+		tokenize(book.getGenre(), FIELD_BOOST, tokens);
+		tokenize(book.getDescription(), 1, tokens);
+
+		Map<String, Integer> frequencies = new HashMap<>();
+
+		for (String token : tokens) {
+			frequencies.merge(token, 1, Integer::sum);
+		}
+		return frequencies;
+	}
+
+	//Splits text into lower-case words of two or more letters or digits, adding each one weight times
+	private static void tokenize(String text, int weight, List<String> tokens) {
+		if (Objects.isNull(text)) {
+			return;
+		}
+
+		for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+			if (token.length() > 1) {
+				for (int i = 0; i < weight; i++) {
+					tokens.add(token);
+				}
+			}
+		}
+	}
+
+	//The postings of one book store. Every indexed book gets a document number, and the postings of a term are
+	//two parallel int arrays of document numbers and term frequencies. Numbers are handed out in increasing order,
+	//so each posting list is sorted and a search merges the lists of its terms in one pass, without boxing and
+	//without a map of scores.
+	//
+	//Replacing or removing a book only marks its old document as deleted and counts it out of the document
+	//frequency of its terms, so idf stays exact. Searches skip deleted documents, and compact() drops them and
+	//renumbers the rest once they make up a quarter of the documents.
+	private static class StoreIndex {
+		private final ReadWriteLock lock = new ReentrantReadWriteLock();
+		private final Map<String, Postings> postings = new HashMap<>();
+		private LongIntMap documents = new LongIntMap(16);
+		private long[] bookIds = new long[16];
+		//-1 once the document is deleted
+		private int[] lengths = new int[16];
+		private Postings[][] documentTerms = new Postings[16][];
+		private int documentCount;
+		private int liveCount;
+		private long totalLength;
+		private long postingCount;
+		private long postingCapacity;
+
+		void add(Long bookId, Map<String, Integer> frequencies) {
+			lock.writeLock().lock();
+
+			try {
+				delete(bookId);
+
+				if (documentCount == bookIds.length) {
+					bookIds = Arrays.copyOf(bookIds, documentCount * 2);
+					lengths = Arrays.copyOf(lengths, documentCount * 2);
+					documentTerms = Arrays.copyOf(documentTerms, documentCount * 2);
+				}
+
+				int document = documentCount++;
+				int length = frequencies.values().stream().mapToInt(Integer::intValue).sum();
+				Postings[] terms = new Postings[frequencies.size()];
+				int i = 0;
+
+				for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+					terms[i] = postings.computeIfAbsent(entry.getKey(), term -> new Postings());
+					postingCapacity += terms[i++].add(document, entry.getValue(), length);
+				}
+
+				documents.put(bookId, document);
+				bookIds[document] = bookId;
+				lengths[document] = length;
+				documentTerms[document] = terms;
+				liveCount++;
+				totalLength += length;
+				postingCount += frequencies.size();
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+
+		private void delete(Long bookId) {
+			int document = documents.remove(bookId);
+
+			if (document < 0) {
+				return;
+			}
+
+			for (Postings termPostings : documentTerms[document]) {
+				termPostings.deleted++;
+			}
+
+			totalLength -= lengths[document];
+			lengths[document] = -1;
+			documentTerms[document] = null;
+			liveCount--;
+
+			if ((documentCount - liveCount) * 4 > documentCount) {
+				compact();
+			}
+		}
+
+		//Drops the postings of deleted documents and numbers the remaining documents from zero again, keeping
+		//their order so that every posting list stays sorted
+		private void compact() {
+			int[] renumbered = new int[documentCount];
+			int live = 0;
+
+			for (int document = 0; document < documentCount; document++) {
+				renumbered[document] = lengths[document] < 0 ? -1 : live++;
+			}
+
+			postingCount = 0;
+			postingCapacity = 0;
+
+			for (Iterator<Postings> terms = postings.values().iterator(); terms.hasNext();) {
+				Postings termPostings = terms.next();
+				termPostings.renumber(renumbered, lengths);
+
+				if (termPostings.size == 0) {
+					terms.remove();
+				} else {
+					postingCount += termPostings.size;
+					postingCapacity += termPostings.documents.length;
+				}
+			}
+
+			long[] liveBookIds = new long[Math.max(live * 2, 16)];
+			int[] liveLengths = new int[liveBookIds.length];
+			Postings[][] liveDocumentTerms = new Postings[liveBookIds.length][];
+			documents = new LongIntMap(live);
+
+			for (int document = 0; document < documentCount; document++) {
+				if (renumbered[document] >= 0) {
+					liveBookIds[renumbered[document]] = bookIds[document];
+					liveLengths[renumbered[document]] = lengths[document];
+					liveDocumentTerms[renumbered[document]] = documentTerms[document];
+					documents.put(bookIds[document], renumbered[document]);
+				}
+			}
+
+			bookIds = liveBookIds;
+			lengths = liveLengths;
+			documentTerms = liveDocumentTerms;
+			documentCount = live;
+		}
+
+		//Document-at-a-time BM25 with MaxScore pruning. Each term's contribution is bounded by its idf and its
+		//highest term frequency. Once the page is full, the terms whose bounds add up to less than the lowest score
+		//on it cannot bring in a document by themselves: the merge then only walks the other terms' postings and
+		//looks up the low-bound terms by skipping ahead in their sorted lists. Common words in a query therefore
+		//cost lookups for the candidates of the rarer words instead of a walk over most of the store.
+		List<Long> search(List<String> terms, int offset, int limit) {
+			lock.readLock().lock();
+
+			try {
+				double averageLength = liveCount == 0 ? 1 : (double) totalLength / liveCount;
+				Postings[] queried = new LinkedHashSet<>(terms).stream().map(postings::get).filter(Objects::nonNull)
+						.toArray(Postings[]::new);
+				int count = queried.length;
+
+				if (count == 0) {
+					return Collections.emptyList();
+				}
+
+				double[] idfs = new double[count];
+				double[] bounds = new double[count];
+				int[] frequencies = new int[count];
+				boolean[] common = new boolean[count];
+				int commonCount = 0;
+
+				for (int i = 0; i < count; i++) {
+					frequencies[i] = queried[i].size - queried[i].deleted;
+					idfs[i] = Math.log(1 + (liveCount - frequencies[i] + 0.5) / (frequencies[i] + 0.5));
+					double tf = queried[i].maxFrequency;
+					bounds[i] = idfs[i] * tf * (K1 + 1) / (tf + K1 * (1 - B));
+					common[i] = frequencies[i] > liveCount * COMMON_TERM_CUTOFF;
+					commonCount += common[i] ? 1 : 0;
+				}
+
+				//Query positions with the common terms first, most frequent first, then the others by bound, lowest
+				//first; and the running sums of their bounds
+				int[] order = IntStream.concat(
+						IntStream.range(0, count).filter(i -> common[i]).boxed()
+								.sorted(Comparator.comparingInt(i -> -frequencies[i])).mapToInt(Integer::intValue),
+						IntStream.range(0, count).filter(i -> !common[i]).boxed()
+								.sorted(Comparator.comparingDouble(i -> bounds[i])).mapToInt(Integer::intValue))
+						.toArray();
+				double[] boundSums = new double[count];
+
+				for (int i = 0; i < count; i++) {
+					boundSums[i] = bounds[order[i]] + (i == 0 ? 0 : boundSums[i - 1]);
+				}
+
+				TopHits best = new TopHits(offset + limit, bookIds);
+				int[] cursors = new int[count];
+				//Contributions by query position, added up in query order so that a score never depends on which
+				//terms were pruned
+				double[] contributions = new double[count];
+				//Terms order[0] to order[essential - 1] are only looked up, never walked. The common terms start out
+				//there, except for the rarest of them when the query has nothing else.
+				int essential = Math.min(commonCount, count - 1);
+				//Bound of the block each walked term's cursor is in, cached by block
+				int[] boundedBlocks = new int[count];
+				double[] blockBounds = new double[count];
+				Arrays.fill(boundedBlocks, -1);
+				//Once the page is full: the documents below rangeEnd lie in one block of each walked term, and
+				//rangeSums[i] adds up the bounds of the blocks of looked-up terms order[0] to order[i] over them
+				int rangeEnd = 0;
+				int rangeEssential = essential;
+				double rangeBound = 0;
+				double[] rangeSums = new double[count];
+
+				while (true) {
+					int document = Integer.MAX_VALUE;
+
+					for (int i = essential; i < count; i++) {
+						Postings list = queried[order[i]];
+
+						if (cursors[i] < list.size) {
+							document = Math.min(document, list.documents[cursors[i]]);
+						}
+					}
+
+					if (document == Integer.MAX_VALUE) {
+						break;
+					}
+
+					//No document in the range can score more than the bounds of the blocks it lies in. If those
+					//cannot reach the page, the whole range is skipped.
+					if (best.isFull()) {
+						if (document >= rangeEnd || rangeEssential != essential) {
+							rangeEnd = Integer.MAX_VALUE;
+							rangeEssential = essential;
+							rangeBound = 0;
+
+							for (int i = essential; i < count; i++) {
+								Postings list = queried[order[i]];
+
+								if (cursors[i] < list.size) {
+									int block = cursors[i] / BLOCK_SIZE;
+
+									if (boundedBlocks[i] != block) {
+										boundedBlocks[i] = block;
+										blockBounds[i] = list.blockBound(block, idfs[order[i]], averageLength);
+									}
+
+									rangeBound += blockBounds[i];
+									rangeEnd = Math.min(rangeEnd,
+											list.documents[Math.min((block + 1) * BLOCK_SIZE, list.size) - 1] + 1);
+								}
+							}
+
+							for (int i = 0; i < essential; i++) {
+								Postings list = queried[order[i]];
+								cursors[i] = list.skipTo(cursors[i], document);
+								rangeSums[i] = (i == 0 ? 0 : rangeSums[i - 1])
+										+ list.rangeBound(cursors[i], rangeEnd, idfs[order[i]], averageLength);
+							}
+
+							rangeBound += essential == 0 ? 0 : rangeSums[essential - 1];
+						}
+
+						if (rangeBound < best.lowestScore()) {
+							for (int i = essential; i < count; i++) {
+								cursors[i] = queried[order[i]].skipTo(cursors[i], rangeEnd);
+							}
+							continue;
+						}
+					}
+
+					double norm = K1 * (1 - B + B * lengths[document] / averageLength);
+					double bound = 0;
+					Arrays.fill(contributions, 0);
+
+					for (int i = essential; i < count; i++) {
+						Postings list = queried[order[i]];
+
+						if (cursors[i] < list.size && list.documents[cursors[i]] == document) {
+							double tf = list.frequencies[cursors[i]++];
+							contributions[order[i]] = idfs[order[i]] * tf * (K1 + 1) / (tf + norm);
+							bound += contributions[order[i]];
+						}
+					}
+
+					if (lengths[document] < 0) {
+						continue;
+					}
+
+					double[] lookedUpSums = best.isFull() ? rangeSums : boundSums;
+					boolean competitive = !best.isFull()
+							|| bound + (essential == 0 ? 0 : lookedUpSums[essential - 1]) >= best.lowestScore();
+
+					for (int i = essential - 1; i >= 0 && competitive; i--) {
+						competitive = !best.isFull() || bound + lookedUpSums[i] >= best.lowestScore();
+
+						if (competitive) {
+							Postings list = queried[order[i]];
+							cursors[i] = list.skipTo(cursors[i], document);
+
+							if (cursors[i] < list.size && list.documents[cursors[i]] == document) {
+								double tf = list.frequencies[cursors[i]++];
+								contributions[order[i]] = idfs[order[i]] * tf * (K1 + 1) / (tf + norm);
+								bound += contributions[order[i]];
+							}
+						}
+					}
+
+					if (competitive) {
+						double score = 0;
+
+						for (double contribution : contributions) {
+							score += contribution;
+						}
+
+						best.offer(document, score);
+
+						while (best.isFull() && essential < count && boundSums[essential] < best.lowestScore()) {
+							essential++;
+						}
+					}
+				}
+
+				return best.ranked(offset);
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+
+		long[] totals() {
+			lock.readLock().lock();
+
+			try {
+				//Postings take 8 bytes each plus a 4-byte reference from their document's term array, and each
+				//block of them 8 bytes of bounds
+				long bytes = postings.size() * (BYTES_PER_TERM + 4 * BYTES_PER_ARRAY) + postingCapacity * 8
+						+ postingCount * 4 + postingCount / BLOCK_SIZE * 8 + (long) liveCount * BYTES_PER_ARRAY + bookIds.length * 16L
+						+ documents.bytes();
+				return new long[] { liveCount, postingCount, bytes };
+			} finally {
+				lock.readLock().unlock();
+			}
+		}
+	}
+
+	//The postings of one term, sorted by document number, with how many of them belong to deleted documents and
+	//the highest term frequency among them. For every BLOCK_SIZE postings it also keeps the highest term frequency
+	//and the shortest document, which bound the score of any posting in the block.
+	private static class Postings {
+		private int[] documents = new int[2];
+		private int[] frequencies = new int[2];
+		private int size;
+		private int deleted;
+		private int maxFrequency;
+		private int[] blockMaxFrequencies = new int[1];
+		private int[] blockMinLengths = new int[1];
+
+		//Returns how many slots the arrays grew by
+		int add(int document, int frequency, int length) {
+			int grown = 0;
+
+			if (size == documents.length) {
+				grown = size / 2 + 1;
+				documents = Arrays.copyOf(documents, size + grown);
+				frequencies = Arrays.copyOf(frequencies, size + grown);
+			}
+
+			documents[size] = document;
+			frequencies[size] = frequency;
+			maxFrequency = Math.max(maxFrequency, frequency);
+			addToBlock(size++, frequency, length);
+			return grown;
+		}
+
+		double blockBound(int block, double idf, double averageLength) {
+			double tf = blockMaxFrequencies[block];
+			double norm = K1 * (1 - B + B * blockMinLengths[block] / averageLength);
+			return idf * tf * (K1 + 1) / (tf + norm);
+		}
+
+		//Bound of the postings from the given one up to the first whose document is not below end
+		double rangeBound(int from, int end, double idf, double averageLength) {
+			double bound = 0;
+
+			for (int block = from / BLOCK_SIZE; from < size && documents[from] < end; from = ++block * BLOCK_SIZE) {
+				bound = Math.max(bound, blockBound(block, idf, averageLength));
+			}
+			return bound;
+		}
+
+		private void addToBlock(int posting, int frequency, int length) {
+			int block = posting / BLOCK_SIZE;
+
+			if (block == blockMaxFrequencies.length) {
+				blockMaxFrequencies = Arrays.copyOf(blockMaxFrequencies, block * 2);
+				blockMinLengths = Arrays.copyOf(blockMinLengths, block * 2);
+			}
+
+			if (posting % BLOCK_SIZE == 0) {
+				blockMaxFrequencies[block] = frequency;
+				blockMinLengths[block] = length;
+			} else {
+				blockMaxFrequencies[block] = Math.max(blockMaxFrequencies[block], frequency);
+				blockMinLengths[block] = Math.min(blockMinLengths[block], length);
+			}
+		}
+
+		//Returns the index of the first posting at or after from whose document is not below the given one,
+		//galloping ahead and then bisecting
+		int skipTo(int from, int document) {
+			if (from >= size || documents[from] >= document) {
+				return from;
+			}
+
+			int below = from;
+			int step = 1;
+			int above = from + 1;
+
+			while (above < size && documents[above] < document) {
+				below = above;
+				step *= 2;
+				above = below + step;
+			}
+
+			above = Math.min(above, size);
+
+			while (above - below > 1) {
+				int middle = (below + above) >>> 1;
+
+				if (documents[middle] < document) {
+					below = middle;
+				} else {
+					above = middle;
+				}
+			}
+			return above;
+		}
+
+		//Keeps the postings of documents still numbered in renumbered, trims the arrays to them and recomputes the
+		//bounds; lengths is indexed by the old numbers
+		void renumber(int[] renumbered, int[] lengths) {
+			int kept = 0;
+			maxFrequency = 0;
+
+			for (int i = 0; i < size; i++) {
+				int document = renumbered[documents[i]];
+
+				if (document >= 0) {
+					addToBlock(kept, frequencies[i], lengths[documents[i]]);
+					documents[kept] = document;
+					frequencies[kept] = frequencies[i];
+					maxFrequency = Math.max(maxFrequency, frequencies[i]);
+					kept++;
+				}
+			}
+
+			int blocks = Math.max((kept + BLOCK_SIZE - 1) / BLOCK_SIZE, 1);
+			size = kept;
+			deleted = 0;
+			documents = Arrays.copyOf(documents, Math.max(kept, 2));
+			frequencies = Arrays.copyOf(frequencies, Math.max(kept, 2));
+			blockMaxFrequencies = Arrays.copyOf(blockMaxFrequencies, blocks);
+			blockMinLengths = Arrays.copyOf(blockMinLengths, blocks);
+		}
+	}
+
+	//The best hits seen so far as a bounded min-heap on parallel arrays. Higher scores rank first, and equal
+	//scores rank by ascending book ID so that pages are stable.
+	private static class TopHits {
+		private final int capacity;
+		private final long[] bookIds;
+		private int[] documents = new int[16];
+		private double[] scores = new double[16];
+		private int size;
+
+		TopHits(int capacity, long[] bookIds) {
+			this.capacity = capacity;
+			this.bookIds = bookIds;
+		}
+
+		boolean isFull() {
+			return size == capacity;
+		}
+
+		double lowestScore() {
+			return scores[0];
+		}
+
+		void offer(int document, double score) {
+			if (size < capacity) {
+				if (size == documents.length) {
+					documents = Arrays.copyOf(documents, size * 2);
+					scores = Arrays.copyOf(scores, size * 2);
+				}
+
+				documents[size] = document;
+				scores[size] = score;
+				siftUp(size++);
+			} else if (size > 0 && below(documents[0], scores[0], document, score)) {
+				documents[0] = document;
+				scores[0] = score;
+				siftDown(0);
+			}
+		}
+
+		//Empties the heap and returns the book IDs best first, without the first offset
+		List<Long> ranked(int offset) {
+			Long[] ranked = new Long[size];
+
+			while (size > 0) {
+				ranked[size - 1] = bookIds[documents[0]];
+				size--;
+				documents[0] = documents[size];
+				scores[0] = scores[size];
+				siftDown(0);
+			}
+			return Arrays.asList(ranked).subList(Math.min(offset, ranked.length), ranked.length);
+		}
+
+		private boolean below(int document, double score, int other, double otherScore) {
+			return score < otherScore || (score == otherScore && bookIds[document] > bookIds[other]);
+		}
+
+		private void siftUp(int i) {
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+
+				if (!below(documents[i], scores[i], documents[parent], scores[parent])) {
+					return;
+				}
+
+				swap(i, parent);
+				i = parent;
+			}
+		}
+
+		private void siftDown(int i) {
+			while (true) {
+				int lowest = i;
+
+				for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+					if (below(documents[child], scores[child], documents[lowest], scores[lowest])) {
+						lowest = child;
+					}
+				}
+
+				if (lowest == i) {
+					return;
+				}
+
+				swap(i, lowest);
+				i = lowest;
+			}
+		}
+
+		private void swap(int i, int j) {
+			int document = documents[i];
+			documents[i] = documents[j];
+			documents[j] = document;
+			double score = scores[i];
+			scores[i] = scores[j];
+			scores[j] = score;
+		}
+	}
+
+	//Open-addressing map from book ID to document number with linear probing. Book IDs are never 0, which marks
+	//an empty slot.
+	private static class LongIntMap {
+		private long[] keys;
+		private int[] values;
+		private int size;
+
+		LongIntMap(int expected) {
+			int capacity = Integer.highestOneBit(Math.max(expected * 2, 8) - 1) << 1;
+			keys = new long[capacity];
+			values = new int[capacity];
+		}
+
+		void put(long key, int value) {
+			int slot = find(key);
+
+			if (keys[slot] == 0) {
+				keys[slot] = key;
+				size++;
+			}
+			values[slot] = value;
+
+			if (size * 2 > keys.length) {
+				resize();
+			}
+		}
+
+		//Removes the key and returns its value, or -1 if it was not there
+		int remove(long key) {
+			int slot = find(key);
+
+			if (keys[slot] == 0) {
+				return -1;
+			}
+
+			int value = values[slot];
+			int mask = keys.length - 1;
+			int gap = slot;
+
+			//Moves later entries of the probe sequence into the gap so that lookups never stop short
+			for (int next = (slot + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+				int home = home(keys[next]);
+
+				if (((next - home) & mask) >= ((next - gap) & mask)) {
+					keys[gap] = keys[next];
+					values[gap] = values[next];
+					gap = next;
+				}
+			}
+
+			keys[gap] = 0;
+			size--;
+			return value;
+		}
+
+		long bytes() {
+			return 2 * BYTES_PER_ARRAY + keys.length * 12L;
+		}
+
+		private int find(long key) {
+			int mask = keys.length - 1;
+			int slot = home(key);
+
+			while (keys[slot] != 0 && keys[slot] != key) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		private int home(long key) {
+			return (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & (keys.length - 1);
+		}
+
+		private void resize() {
+			long[] oldKeys = keys;
+			int[] oldValues = values;
+			keys = new long[oldKeys.length * 2];
+			values = new int[oldKeys.length * 2];
+			size = 0;
+
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != 0) {
+					put(oldKeys[i], oldValues[i]);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package book.store.service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import book.store.controller.model.BookStoreData;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+//In-process read-through cache for fully populated BookStoreData and for pages of the book store summary listing.
+//Both caches are bounded by size and expire entries after a TTL. Hit, miss and eviction counts are published as the
+//cache.gets and cache.evictions metrics under the names "bookStore" and "bookStoreSummaries".
+//
+//Invalidations run after the writing transaction commits. Each cache also keeps a generation counter that every
+//invalidation bumps. A reader that loaded its value while an invalidation happened does not cache it, so a value
+//read before a commit can never be left behind in the cache after that commit, nor be served in the meantime.
+//That only holds for values read from the primary: BookStoreService pins the reads that fill this cache to it.
+@Component
+public class BookStoreCache {
+
+	public static final String BOOK_STORE_CACHE = "bookStore";
+	public static final String SUMMARY_CACHE = "bookStoreSummaries";
+
+	private final Cache<Long, BookStoreData> bookStores;
+	private final Cache<SummaryPage, List<BookStoreData>> summaries;
+	private final AtomicLong bookStoreGeneration = new AtomicLong();
+	private final AtomicLong summaryGeneration = new AtomicLong();
+
+	public BookStoreCache(@Value("${book-store.cache.max-size:10000}") long maxSize,
+			@Value("${book-store.cache.summary-max-pages:1000}") long summaryMaxPages,
+			@Value("${book-store.cache.ttl:10m}") Duration ttl, MeterRegistry meterRegistry) {
+		bookStores = Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build();
+		summaries = Caffeine.newBuilder().maximumSize(summaryMaxPages).expireAfterWrite(ttl).recordStats().build();
+
+		CaffeineCacheMetrics.monitor(meterRegistry, bookStores, BOOK_STORE_CACHE);
+		CaffeineCacheMetrics.monitor(meterRegistry, summaries, SUMMARY_CACHE);
+	}
+
+	public BookStoreData getBookStore(Long bookStoreId, Supplier<BookStoreData> loader) {
+		return readThrough(bookStores, bookStoreGeneration, bookStoreId, loader);
+	}
+
+	//Returns the cached book stores among the IDs and loads the rest with a single call to the loader, which gets the
+	//missing IDs and returns the book stores it found by ID
+	public Map<Long, BookStoreData> getBookStores(Collection<Long> bookStoreIds,
+			Function<Set<Long>, Map<Long, BookStoreData>> loader) {
+		Map<Long, BookStoreData> found = new HashMap<>(bookStores.getAllPresent(bookStoreIds));
+		Set<Long> missing = new HashSet<>(bookStoreIds);
+		missing.removeAll(found.keySet());
+
+		if (missing.isEmpty()) {
+			return found;
+		}
+
+		long started = bookStoreGeneration.get();
+		Map<Long, BookStoreData> loaded = loader.apply(missing);
+		loaded.forEach((bookStoreId, bookStoreData) -> putIfCurrent(bookStores, bookStoreGeneration, started,
+				bookStoreId, bookStoreData));
+
+		found.putAll(loaded);
+		return found;
+	}
+
+	public List<BookStoreData> getSummaries(Long after, int limit, Supplier<List<BookStoreData>> loader) {
+		return readThrough(summaries, summaryGeneration, new SummaryPage(after, limit), loader);
+	}
+
+	//Removes the book store from the cache once the current transaction commits
+	public void evictBookStore(Long bookStoreId) {
+		AfterCommit.run(() -> {
+			bookStoreGeneration.incrementAndGet();
+			bookStores.invalidate(bookStoreId);
+		});
+	}
+
+	//Removes the book stores from the cache once the current transaction commits
+	public void evictBookStores(Collection<Long> bookStoreIds) {
+		AfterCommit.run(() -> {
+			bookStoreGeneration.incrementAndGet();
+			bookStores.invalidateAll(bookStoreIds);
+		});
+	}
+
+	//Removes every cached summary page once the current transaction commits
+	public void evictSummaries() {
+		AfterCommit.run(() -> {
+			summaryGeneration.incrementAndGet();
+			summaries.invalidateAll();
+		});
+	}
+
+	private <K, V> V readThrough(Cache<K, V> cache, AtomicLong generation, K key, Supplier<V> loader) {
+		V cached = cache.getIfPresent(key);
+
+		if (Objects.nonNull(cached)) {
+			return cached;
+		}
+
+		long started = generation.get();
+		V loaded = loader.get();
+		putIfCurrent(cache, generation, started, key, loaded);
+		return loaded;
+	}
+
+	//Caches the value unless an invalidation ran since it started loading, in which case it may be older than the
+	//committed data. The check and the put are one atomic step on the key, and an invalidation bumps the generation
+	//before it removes the key: it either comes first and the value is not cached, or comes after and removes it.
+	private static <K, V> void putIfCurrent(Cache<K, V> cache, AtomicLong generation, long started, K key, V value) {
+		cache.asMap().compute(key, (k, current) -> generation.get() == started ? value : current);
+	}
+
+	private record SummaryPage(Long after, int limit) {
+	}
+}
@@ -0,0 +1,247 @@
+package book.store.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import book.store.controller.model.BookStoreChange;
+import book.store.controller.model.BookStoreChange.Type;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+//Committed changes of book stores and their children, for clients that would otherwise poll GET /book_store.
+//Every change gets the next sequence number once its transaction commits and is kept in a ring buffer of the last
+//capacity changes, so a client that reconnects with the last sequence it saw gets everything after it.
+//
+//Sequences start at the startup time in microseconds, so they keep increasing across restarts. A client asking to
+//resume from a sequence that is no longer in the buffer, or from one this process never issued, gets a reset event
+//with the current sequence instead and has to reload what it caches.
+//
+//Each subscriber has its own bounded queue, emptied by its own sender task. Publishing never waits for a client:
+//a subscriber whose queue is full is disconnected and can resume from its last sequence.
+@Component
+@Slf4j
+public class BookStoreChangeFeed implements DisposableBean {
+
+	private final BookStoreChange[] ring;
+	private final long firstSequence = System.currentTimeMillis() * 1000;
+	private long nextSequence = firstSequence;
+
+	private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+	private final int subscriberBuffer;
+	private final int maxSubscribers;
+	private final Duration timeout;
+	private final AtomicInteger senderThreads = new AtomicInteger();
+	private final ExecutorService senders = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "change-feed-" + senderThreads.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Counter overflows;
+
+	public BookStoreChangeFeed(@Value("${book-store.changes.capacity:10000}") int capacity,
+			@Value("${book-store.changes.subscriber-buffer:1000}") int subscriberBuffer,
+			@Value("${book-store.changes.max-subscribers:1000}") int maxSubscribers,
+			@Value("${book-store.changes.timeout:30m}") Duration timeout, MeterRegistry meterRegistry) {
+		this.ring = new BookStoreChange[capacity];
+		this.subscriberBuffer = subscriberBuffer;
+		this.maxSubscribers = maxSubscribers;
+		this.timeout = timeout;
+
+		Gauge.builder("book_store.changes.subscribers", subscribers, List::size)
+				.description("Open change feed streams").register(meterRegistry);
+		overflows = Counter.builder("book_store.changes.overflows")
+				.description("Change feed subscribers disconnected because they fell too far behind")
+				.register(meterRegistry);
+	}
+
+	//Adds the change to the feed once the current transaction commits
+	public void publish(Type type, Long bookStoreId, Long entityId, int count) {
+		AfterCommit.run(() -> append(type, bookStoreId, entityId, count));
+	}
+
+	//Opens a stream that starts after the given sequence, or with a reset event when since is null or can no
+	//longer be resumed from
+	public SseEmitter subscribe(Long since) {
+		if (subscribers.size() >= maxSubscribers) {
+			throw new AdmissionRejectedException("The change feed has " + maxSubscribers
+					+ " subscribers already. Try again later.", Duration.ofSeconds(5));
+		}
+
+		Subscriber subscriber = new Subscriber(new SseEmitter(timeout.toMillis()));
+
+		//Taken together with the lock in append, so no change falls between the backlog and the live changes
+		synchronized (this) {
+			long latest = nextSequence - 1;
+			long oldest = Math.max(firstSequence, nextSequence - ring.length);
+
+			if (Objects.isNull(since) || since < oldest - 1 || since > latest) {
+				subscriber.reset = latest;
+			} else {
+				for (long sequence = since + 1; sequence <= latest; sequence++) {
+					subscriber.backlog.add(ring[index(sequence)]);
+				}
+			}
+			subscribers.add(subscriber);
+		}
+
+		subscriber.emitter.onCompletion(subscriber::close);
+		subscriber.emitter.onTimeout(subscriber::close);
+		subscriber.emitter.onError(error -> subscriber.close());
+		subscriber.schedule();
+		return subscriber.emitter;
+	}
+
+	//Sends a comment line to subscribers that had nothing else to send, so that idle streams stay open behind proxies
+	//and streams of clients that went away are noticed
+	@Scheduled(initialDelayString = "${book-store.changes.heartbeat:PT15S}",
+			fixedDelayString = "${book-store.changes.heartbeat:PT15S}")
+	public void heartbeat() {
+		for (Subscriber subscriber : subscribers) {
+			subscriber.heartbeatDue = true;
+			subscriber.schedule();
+		}
+	}
+
+	@Override
+	public void destroy() {
+		subscribers.forEach(subscriber -> subscriber.emitter.complete());
+		senders.shutdownNow();
+	}
+
+	private synchronized void append(Type type, Long bookStoreId, Long entityId, int count) {
+		BookStoreChange change = new BookStoreChange(nextSequence++, type, bookStoreId, entityId, count,
+				Instant.now());
+		ring[index(change.getSequence())] = change;
+
+		for (Subscriber subscriber : subscribers) {
+			subscriber.offer(change);
+		}
+	}
+
+	private int index(long sequence) {
+		return (int) Math.floorMod(sequence, (long) ring.length);
+	}
+
+	private class Subscriber {
+		private final SseEmitter emitter;
+		private final BlockingQueue<BookStoreChange> queue = new ArrayBlockingQueue<>(subscriberBuffer);
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+		//Set before the first send and only read by the sender afterwards
+		private final List<BookStoreChange> backlog = new ArrayList<>();
+		private Long reset;
+		private volatile boolean closed;
+		private volatile boolean heartbeatDue;
+		//Only touched by the sender
+		private boolean completed;
+
+		Subscriber(SseEmitter emitter) {
+			this.emitter = emitter;
+		}
+
+		void offer(BookStoreChange change) {
+			if (closed) {
+				return;
+			}
+
+			if (!queue.offer(change)) {
+				log.info("Disconnecting a change feed subscriber that is {} changes behind", queue.size());
+				overflows.increment();
+				close();
+			}
+			schedule();
+		}
+
+		void schedule() {
+			if (scheduled.compareAndSet(false, true)) {
+				senders.execute(this::drain);
+			}
+		}
+
+		void close() {
+			closed = true;
+			subscribers.remove(this);
+		}
+
+		private void drain() {
+			try {
+				if (closed) {
+					complete();
+					return;
+				}
+
+				boolean sent = false;
+
+				if (Objects.nonNull(reset)) {
+					emitter.send(SseEmitter.event().name("reset").id(String.valueOf(reset))
+							.data(Map.of("sequence", reset), MediaType.APPLICATION_JSON));
+					reset = null;
+					sent = true;
+				}
+
+				for (BookStoreChange change : backlog) {
+					send(change);
+					sent = true;
+				}
+				backlog.clear();
+
+				BookStoreChange change;
+
+				while (!closed && Objects.nonNull(change = queue.poll())) {
+					send(change);
+					sent = true;
+				}
+
+				if (heartbeatDue && !sent) {
+					emitter.send(SseEmitter.event().comment("keepalive"));
+				}
+				heartbeatDue = false;
+
+				if (closed) {
+					complete();
+				}
+			} catch (IOException | IllegalStateException e) {
+				//The client went away or the stream already completed
+				close();
+				completed = true;
+			} finally {
+				scheduled.set(false);
+
+				//A change or a close that came in after the checks above
+				if (!completed && (closed || !queue.isEmpty())) {
+					schedule();
+				}
+			}
+		}
+
+		private void complete() {
+			emitter.complete();
+			completed = true;
+		}
+
+		private void send(BookStoreChange change) throws IOException {
+			emitter.send(SseEmitter.event().name("change").id(String.valueOf(change.getSequence()))
+					.data(change, MediaType.APPLICATION_JSON));
+		}
+	}
+}
@@ -0,0 +1,404 @@
+package book.store.service;
+
+import java.math.BigDecimal;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import book.store.config.PinnedToPrimary;
+import book.store.controller.model.BookStoreOrder;
+import book.store.controller.model.BookStoreOrder.BookStoreOrderLine;
+import book.store.controller.model.BookStoreStats;
+import book.store.dao.BookDao;
+import book.store.dao.BookOrderDao;
+import book.store.dao.BookStoreDao;
+import book.store.dao.CustomerDao;
+import book.store.entity.Book;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+//Per book store dashboard figures kept in memory: books per genre, customers, orders, and revenue per genre and per
+//author. BookStoreService and OrderWriter hand each write to them inside its transaction, and it is applied when the
+//transaction commits, so reading them costs the same however large the catalog is. Revenue is grouped by each book's
+//current genre and author, like the SQL recount.
+//
+//Genres and authors are grouped the way MySQL's default collation (utf8mb4_0900_ai_ci) groups them, ignoring case
+//and accents, so "Fantasy" and "fantasy" are one group here as in the recount. A group keeps the spelling it was
+//first seen with.
+//
+//The figures are rebuilt from SQL aggregates on startup, and the scheduled check recounts them, counts the book stores
+//whose figures differ and replaces them. Both read one REPEATABLE READ snapshot of the primary: a lagging replica would
+//miss writes that are neither in the snapshot nor replayed. Every write holds snapshotLock for reading from just before
+//its commit until it is applied, and a recount fixes its snapshot while holding it for writing, so each write either
+//committed before the snapshot and is in it, or is replayed onto the recounted figures, never both.
+@Component
+@Slf4j
+public class BookStoreRollups implements ApplicationRunner {
+
+	//Group used for books without a genre or author
+	private static final String NONE = "(none)";
+
+	//Orders genres and authors like the collation: equal when they differ only in case or accents
+	private static final Collator GROUP_ORDER = Collator.getInstance(Locale.ROOT);
+
+	static {
+		GROUP_ORDER.setStrength(Collator.PRIMARY);
+	}
+
+	private volatile Map<Long, StoreRollup> stores = new ConcurrentHashMap<>();
+
+	//Guards pendingUpdates. While a recount runs it holds every write applied to the current figures since the
+	//recount fixed its snapshot; otherwise it is null.
+	private final Object updateLock = new Object();
+	private List<Consumer<Map<Long, StoreRollup>>> pendingUpdates;
+
+	//Held for reading by each write from just before its commit until it is applied, and for writing while a recount
+	//fixes its snapshot
+	private final ReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+
+	@Autowired
+	private BookDao bookDao;
+
+	@Autowired
+	private BookOrderDao bookOrderDao;
+
+	@Autowired
+	private BookStoreDao bookStoreDao;
+
+	@Autowired
+	private CustomerDao customerDao;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private final Counter mismatches;
+
+	public BookStoreRollups(MeterRegistry meterRegistry) {
+		mismatches = Counter.builder("book_store.rollups.mismatches")
+				.description("Book stores whose rollups differed from a full recount").register(meterRegistry);
+	}
+
+	@Override
+	@PinnedToPrimary
+	public void run(ApplicationArguments args) {
+		rebuild();
+	}
+
+	//Called inside the transaction that adds the books, like the other writes below; applied when it commits
+	public void booksAdded(Long bookStoreId, Collection<String> genres) {
+		updateOnCommit(bookStoreId, store -> {
+			for (String genre : genres) {
+				store.books++;
+				store.booksByGenre.merge(group(genre), 1L, Long::sum);
+			}
+		});
+	}
+
+	//Moves a changed book, and the revenue it has earned so far, to its new genre and author
+	public void bookChanged(Long bookStoreId, String oldGenre, String newGenre, String oldAuthor, String newAuthor,
+			BigDecimal revenue) {
+		updateOnCommit(bookStoreId, store -> {
+			addCount(store.booksByGenre, group(oldGenre), -1);
+			addCount(store.booksByGenre, group(newGenre), 1);
+			store.revenueByGenre.add(group(oldGenre), revenue.negate());
+			store.revenueByGenre.add(group(newGenre), revenue);
+			store.revenueByAuthor.add(group(oldAuthor), revenue.negate());
+			store.revenueByAuthor.add(group(newAuthor), revenue);
+		});
+	}
+
+	public void customerAdded(Long bookStoreId) {
+		updateOnCommit(bookStoreId, store -> store.customers++);
+	}
+
+	//Adds a stored order. books holds at least the order's books, for their genre and author.
+	public void orderStored(BookStoreOrder order, Map<Long, Book> books) {
+		updateOnCommit(order.getBookStoreId(), store -> {
+			store.orders++;
+			store.revenue = store.revenue.add(order.getOrderTotal());
+
+			for (BookStoreOrderLine line : order.getLines()) {
+				Book book = books.get(line.getBookId());
+				BigDecimal amount = line.getUnitPrice().multiply(BigDecimal.valueOf(line.getQuantity()));
+				store.revenueByGenre.add(group(book.getGenre()), amount);
+				store.revenueByAuthor.add(group(book.getAuthor()), amount);
+			}
+		});
+	}
+
+	//Called once the deletion is over. Removing a book store again is harmless, so this needs no snapshot ordering.
+	public void removeBookStore(Long bookStoreId) {
+		update(target -> target.remove(bookStoreId));
+	}
+
+	//Copies the book store's figures, with genres sorted by name and authors by revenue, keeping topAuthors of them
+	public BookStoreStats stats(Long bookStoreId, int topAuthors) {
+		BookStoreStats stats = new BookStoreStats();
+		stats.setBookStoreId(bookStoreId);
+		StoreRollup store = stores.get(bookStoreId);
+
+		if (Objects.isNull(store)) {
+			return stats;
+		}
+
+		synchronized (store) {
+			stats.setCustomers(store.customers);
+			stats.setBooks(store.books);
+			stats.setOrders(store.orders);
+			stats.setRevenue(store.revenue);
+			stats.getBooksByGenre().putAll(store.booksByGenre);
+			store.revenueByGenre.copyTop(Integer.MAX_VALUE, stats.getRevenueByGenre());
+			store.revenueByAuthor.copyTop(topAuthors, stats.getRevenueByAuthor());
+		}
+		return stats;
+	}
+
+	//Recounts every book store and swaps in the new figures when they are complete, so stats() keeps using the old
+	//figures while the recount runs
+	@PinnedToPrimary
+	public void rebuild() {
+		long started = System.currentTimeMillis();
+		recount(recounted -> stores = recounted);
+		log.info("Book store rollups rebuilt in {} ms for {} book stores", System.currentTimeMillis() - started,
+				stores.size());
+	}
+
+	//Like rebuild(), but first counts and logs the book stores whose figures differ from the recount. The replayed
+	//recount and the current figures are compared under updateLock, so an in-flight write is never taken for a
+	//difference.
+	@Scheduled(initialDelayString = "${book-store.rollups.check-interval:PT1H}",
+			fixedDelayString = "${book-store.rollups.check-interval:PT1H}")
+	@PinnedToPrimary
+	public void check() {
+		recount(recounted -> {
+			Set<Long> bookStoreIds = new HashSet<>(recounted.keySet());
+			bookStoreIds.addAll(stores.keySet());
+
+			for (Long bookStoreId : bookStoreIds) {
+				StoreRollup expected = recounted.getOrDefault(bookStoreId, new StoreRollup());
+				StoreRollup actual = stores.getOrDefault(bookStoreId, new StoreRollup());
+
+				if (!actual.sameAs(expected)) {
+					mismatches.increment();
+					log.warn("Rollups of book store with ID={} differ from the recount; replacing them", bookStoreId);
+				}
+			}
+			stores = recounted;
+		});
+	}
+
+	//Recounts every book store, replays the writes that committed after the recount's snapshot, and hands the result
+	//to install under updateLock, before any later write is applied. Recounts run one at a time because they share
+	//pendingUpdates.
+	private synchronized void recount(Consumer<Map<Long, StoreRollup>> install) {
+		Map<Long, StoreRollup> recounted = new ConcurrentHashMap<>();
+		TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+		readOnlyTransaction.setReadOnly(true);
+		readOnlyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+		try {
+			readOnlyTransaction.executeWithoutResult(status -> {
+				snapshotLock.writeLock().lock();
+
+				try {
+					//The first read fixes the transaction's snapshot
+					bookStoreDao.existsById(0L);
+
+					synchronized (updateLock) {
+						pendingUpdates = new ArrayList<>();
+					}
+				} finally {
+					snapshotLock.writeLock().unlock();
+				}
+
+				for (Object[] row : bookDao.countByBookStoreAndGenre()) {
+					StoreRollup store = recounted.computeIfAbsent(id(row[0]), id -> new StoreRollup());
+					long count = ((Number) row[2]).longValue();
+					store.books += count;
+					addCount(store.booksByGenre, group((String) row[1]), count);
+				}
+
+				for (Object[] row : customerDao.countByBookStore()) {
+					recounted.computeIfAbsent(id(row[0]), id -> new StoreRollup()).customers = ((Number) row[1])
+							.longValue();
+				}
+
+				for (Object[] row : bookOrderDao.countOrdersByBookStore()) {
+					StoreRollup store = recounted.computeIfAbsent(id(row[0]), id -> new StoreRollup());
+					store.orders = ((Number) row[1]).longValue();
+					store.revenue = (BigDecimal) row[2];
+				}
+
+				for (Object[] row : bookOrderDao.sumRevenueByBookStoreAndGenre()) {
+					recounted.computeIfAbsent(id(row[0]), id -> new StoreRollup()).revenueByGenre
+							.add(group((String) row[1]), (BigDecimal) row[2]);
+				}
+
+				for (Object[] row : bookOrderDao.sumRevenueByBookStoreAndAuthor()) {
+					recounted.computeIfAbsent(id(row[0]), id -> new StoreRollup()).revenueByAuthor
+							.add(group((String) row[1]), (BigDecimal) row[2]);
+				}
+			});
+
+			synchronized (updateLock) {
+				pendingUpdates.forEach(update -> update.accept(recounted));
+				install.accept(recounted);
+			}
+		} finally {
+			synchronized (updateLock) {
+				pendingUpdates = null;
+			}
+		}
+	}
+
+	//Applies update once the surrounding transaction has committed, holding snapshotLock for reading from just before
+	//the commit until then. Outside a transaction it is applied straight away.
+	private void updateOnCommit(Long bookStoreId, Consumer<StoreRollup> update) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			update(bookStoreId, update);
+			return;
+		}
+
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			private boolean locked;
+
+			@Override
+			public void beforeCommit(boolean readOnly) {
+				snapshotLock.readLock().lock();
+				locked = true;
+			}
+
+			@Override
+			public void afterCommit() {
+				update(bookStoreId, update);
+			}
+
+			@Override
+			public void afterCompletion(int status) {
+				if (locked) {
+					locked = false;
+					snapshotLock.readLock().unlock();
+				}
+			}
+		});
+	}
+
+	private void update(Long bookStoreId, Consumer<StoreRollup> update) {
+		update(target -> {
+			StoreRollup store = target.computeIfAbsent(bookStoreId, id -> new StoreRollup());
+
+			synchronized (store) {
+				update.accept(store);
+			}
+		});
+	}
+
+	private void update(Consumer<Map<Long, StoreRollup>> update) {
+		synchronized (updateLock) {
+			update.accept(stores);
+
+			if (Objects.nonNull(pendingUpdates)) {
+				pendingUpdates.add(update);
+			}
+		}
+	}
+
+	private static Long id(Object value) {
+		return ((Number) value).longValue();
+	}
+
+	private static String group(String value) {
+		return Objects.isNull(value) || value.isBlank() ? NONE : value;
+	}
+
+	//Empty groups are removed so that the figures compare equal to a recount, which has no row for them
+	private static void addCount(Map<String, Long> counts, String key, long delta) {
+		counts.merge(key, delta, (current, added) -> current + added == 0 ? null : current + added);
+	}
+
+	private static class StoreRollup {
+		private long customers;
+		private long books;
+		private long orders;
+		private BigDecimal revenue = BigDecimal.ZERO;
+		private final Map<String, Long> booksByGenre = new TreeMap<>(GROUP_ORDER);
+		private final RankedAmounts revenueByGenre = new RankedAmounts();
+		private final RankedAmounts revenueByAuthor = new RankedAmounts();
+
+		synchronized boolean sameAs(StoreRollup other) {
+			return customers == other.customers && books == other.books && orders == other.orders
+					&& revenue.compareTo(other.revenue) == 0 && booksByGenre.equals(other.booksByGenre)
+					&& revenueByGenre.sameAs(other.revenueByGenre) && revenueByAuthor.sameAs(other.revenueByAuthor);
+		}
+	}
+
+	//Amounts per group, also kept ordered from the largest amount down, so that stats() copies the top groups without
+	//sorting them. Each change costs O(log n).
+	private static class RankedAmounts {
+		private static final Comparator<Ranked> LARGEST_FIRST = Comparator.comparing(Ranked::amount,
+				Comparator.reverseOrder()).thenComparing(Ranked::group, GROUP_ORDER);
+
+		private final TreeMap<String, BigDecimal> amounts = new TreeMap<>(GROUP_ORDER);
+		private final TreeSet<Ranked> ranking = new TreeSet<>(LARGEST_FIRST);
+
+		//Empty groups are removed so that the figures compare equal to a recount, which has no row for them
+		void add(String key, BigDecimal delta) {
+			String stored = amounts.ceilingKey(key);
+			String group = Objects.nonNull(stored) && GROUP_ORDER.compare(stored, key) == 0 ? stored : key;
+			BigDecimal current = amounts.get(group);
+			BigDecimal sum = delta;
+
+			if (Objects.nonNull(current)) {
+				ranking.remove(new Ranked(group, current));
+				sum = current.add(delta);
+			}
+
+			if (sum.signum() == 0) {
+				amounts.remove(group);
+			} else {
+				amounts.put(group, sum);
+				ranking.add(new Ranked(group, sum));
+			}
+		}
+
+		void copyTop(int limit, Map<String, BigDecimal> target) {
+			ranking.stream().limit(limit).forEach(ranked -> target.put(ranked.group(), ranked.amount()));
+		}
+
+		boolean sameAs(RankedAmounts other) {
+			if (!amounts.keySet().equals(other.amounts.keySet())) {
+				return false;
+			}
+			return amounts.entrySet().stream()
+					.allMatch(entry -> entry.getValue().compareTo(other.amounts.get(entry.getKey())) == 0);
+		}
+
+		private record Ranked(String group, BigDecimal amount) {
+		}
+	}
+}
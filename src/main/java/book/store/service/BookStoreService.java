@@ -1,31 +1,100 @@
 package book.store.service;
 
-import java.util.LinkedList;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import book.store.config.PinnedToPrimary;
+import book.store.controller.model.BookBulkLoadSummary;
+import book.store.controller.model.BookGenreStats;
+import book.store.controller.model.BookPage;
+import book.store.controller.model.BookStock;
+import book.store.controller.model.BookStoreChange;
+import book.store.controller.model.BookStoreBatch;
 import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreDeletion;
+import book.store.controller.model.BookStoreOrder;
+import book.store.controller.model.BookStoreOrder.BookStoreOrderLine;
+import book.store.controller.model.BookStoreStats;
+import book.store.controller.model.BookStoreVersion;
+import book.store.controller.model.NearbyBookStore;
+import book.store.controller.model.BookStoreData.Include;
 import book.store.controller.model.BookStoreData.BookStoreBook;
 import book.store.controller.model.BookStoreData.BookStoreCustomer;
 import book.store.controller.model.BookStoreData.BookStoreEmployee;
 import book.store.dao.BookDao;
+import book.store.dao.BookOrderDao;
+import book.store.dao.BookSpecifications;
 import book.store.dao.BookStoreDao;
+import book.store.dao.BookStreamDao;
 import book.store.dao.CustomerDao;
 import book.store.dao.EmployeeDao;
 import book.store.entity.Book;
 import book.store.entity.BookStore;
 import book.store.entity.Customer;
 import book.store.entity.Employee;
+import book.store.service.StoreGrid.Hit;
+import book.store.service.ZipCentroids.Centroid;
+import io.micrometer.core.annotation.Timed;
+import lombok.extern.slf4j.Slf4j;
 
 
 @Service
+@Slf4j
+@Timed(value = "book_store.service", description = "Time spent in BookStoreService methods")
 public class BookStoreService {
 
+    //Largest page the book store summary listing will return, whatever limit the client asks for
+    public static final int MAX_PAGE_SIZE = 500;
+
+    //Most book store IDs a single multi-ID fetch may ask for
+    public static final int MAX_BATCH_IDS = 200;
+
+    //Most book stores a single nearby search may return
+    public static final int MAX_NEARBY = 100;
+
+    //Upper bound used when a price range has no maximum; matches the DECIMAL(10,2) price column
+    private static final BigDecimal MAX_PRICE = new BigDecimal("99999999.99");
+
+    //Number of exported books written between flushes of the response stream
+    private static final int EXPORT_FLUSH_INTERVAL = 1000;
+
     @Autowired
     private BookStoreDao bookStoreDao;
 
@@ -38,12 +107,89 @@ public class BookStoreService {
     @Autowired
     private BookDao bookDao;
 
+    @Autowired
+    private BookStreamDao bookStreamDao;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BookStoreCache bookStoreCache;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private BookStoreRollups bookStoreRollups;
+
+    @Autowired
+    private BookStoreChangeFeed bookStoreChangeFeed;
+
+    @Autowired
+    private NearbyStoreIndex nearbyStoreIndex;
+
+    @Autowired
+    private ZipCentroids zipCentroids;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${book-store.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
+
+    @Value("${book-store.delete.chunk-size:1000}")
+    private int deleteChunkSize;
+
+    @Autowired
+    private TaskExecutor taskExecutor;
+
+    @Autowired
+    private BookOrderDao bookOrderDao;
+
+    @Autowired
+    private OrderWriter orderWriter;
+
+    @Autowired
+    private OrderJournal orderJournal;
+
+    //Only there when book-store.admission.enabled is true
+    @Autowired
+    private ObjectProvider<AdmissionGate> admissionGate;
+
+    //Status of recent book store deletions by job ID, for polling asynchronous deletions
+    private final Cache<String, BookStoreDeletion> deletionJobs = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofHours(1))
+            .maximumSize(10_000)
+            .build();
+
     @Transactional
     public BookStoreData saveBookStore(BookStoreData bookStoreData) {
+        return saveBookStore(bookStoreData, null);
+    }
+
+    //Updates only if the book store is still at expectedVersion (from the client's If-Match), so a client
+    //working from an old copy cannot overwrite someone else's change. An update that races past the check is
+    //still caught by the @Version column when it is flushed. A null expectedVersion skips the check.
+    @Transactional
+    public BookStoreData saveBookStore(BookStoreData bookStoreData, Long expectedVersion) {
         BookStore bookStore = findOrCreateBookStore(bookStoreData.getBookStoreId());
+
+        if (Objects.nonNull(expectedVersion) && bookStore.getVersion() != expectedVersion) {
+            throw new OptimisticLockingFailureException("BookStore with ID=" + bookStore.getBookStoreId()
+                    + " is at version " + bookStore.getVersion() + ", not " + expectedVersion + ".");
+        }
         copyBookStoreFields(bookStore, bookStoreData);
 
-        BookStore dbBookStore = bookStoreDao.save(bookStore);
+        //Flushed here so the returned data carries the incremented version
+        BookStore dbBookStore = bookStoreDao.saveAndFlush(bookStore);
+        bookStoreCache.evictBookStore(dbBookStore.getBookStoreId());
+        bookStoreCache.evictSummaries();
+        bookStoreChangeFeed.publish(BookStoreChange.Type.BOOK_STORE_SAVED, dbBookStore.getBookStoreId(),
+                dbBookStore.getBookStoreId(), 1);
+        AfterCommit.run(() -> nearbyStoreIndex.put(dbBookStore.getBookStoreId(), dbBookStore.getBookStoreZip()));
         return new BookStoreData(dbBookStore);
     }
 
@@ -74,9 +220,127 @@ public class BookStoreService {
                 .orElseThrow(() -> new NoSuchElementException("BookStore with ID=" + bookStoreId + " does not exist."));
     }
 
+    //Returns an uninitialized reference to the book store after checking that it exists. Child writes only need
+    //the book store's ID for the foreign key, so the book store's collections are never loaded on those paths.
+    private BookStore findBookStoreReference(Long bookStoreId) {
+        if (!bookStoreDao.existsById(bookStoreId)) {
+            throw new NoSuchElementException("BookStore with ID=" + bookStoreId + " does not exist.");
+        }
+        return bookStoreDao.getReferenceById(bookStoreId);
+    }
+
+    //Records that one of the book store's children is about to change and returns a reference for the foreign key.
+    //The update doubles as the existence check, replacing the separate exists query.
+    private BookStore touchBookStore(Long bookStoreId) {
+        if (bookStoreDao.incrementContentVersion(bookStoreId) == 0) {
+            throw new NoSuchElementException("BookStore with ID=" + bookStoreId + " does not exist.");
+        }
+        return bookStoreDao.getReferenceById(bookStoreId);
+    }
+
+    //Reads just the book store's version columns. Conditional GETs compare them with the client's ETag before any
+    //data is loaded or taken from the cache. Pinned to the primary because the result is kept in the query cache.
+    @PinnedToPrimary
+    @Transactional(readOnly = true)
+    public BookStoreVersion retrieveBookStoreVersion(Long bookStoreId) {
+        return bookStoreDao.findVersionByBookStoreId(bookStoreId)
+                .orElseThrow(() -> new NoSuchElementException("BookStore with ID=" + bookStoreId + " does not exist."));
+    }
+
+    //Throws NoSuchElementException if the book store does not exist. Used before a streamed response is started,
+    //because an error can no longer be reported once the first bytes are written.
     @Transactional(readOnly = true)
-    public BookStoreData retrieveBookStoreById(Long bookStoreId) {
-        return new BookStoreData(findBookStoreById(bookStoreId));
+    public void verifyBookStoreExists(Long bookStoreId) {
+        findBookStoreReference(bookStoreId);
+    }
+
+    //Fully populated book stores are served from the BookStoreCache. A cache hit never opens a transaction or
+    //borrows a connection; the read-only transaction is only started on a miss or for a partial include.
+    //Pinned to the primary because a miss fills the BookStoreCache, which must never hold a lagging replica's data.
+    @PinnedToPrimary
+    public BookStoreData retrieveBookStoreById(Long bookStoreId, Set<Include> include) {
+        if (include.equals(Include.ALL)) {
+            return bookStoreCache.getBookStore(bookStoreId,
+                    () -> readOnly(() -> loadBookStoreData(bookStoreId, include)));
+        }
+        return readOnly(() -> loadBookStoreData(bookStoreId, include));
+    }
+
+    //Loads the book store and then each requested child set with its own fetch-join query, so the number of
+    //SQL statements is fixed (one plus one per requested set) no matter how large the book store is.
+    private BookStoreData loadBookStoreData(Long bookStoreId, Set<Include> include) {
+        BookStore bookStore = findBookStoreById(bookStoreId);
+
+        if (include.contains(Include.CUSTOMERS)) {
+            bookStoreDao.findWithCustomersByBookStoreId(bookStoreId);
+        }
+
+        if (include.contains(Include.EMPLOYEES)) {
+            bookStoreDao.findWithEmployeesByBookStoreId(bookStoreId);
+        }
+
+        if (include.contains(Include.BOOKS)) {
+            bookStoreDao.findWithBooksByBookStoreId(bookStoreId);
+        }
+
+        return new BookStoreData(bookStore, include);
+    }
+
+    //Returns the book stores with the given IDs in the order asked for, reporting unknown IDs as missing instead of
+    //failing. Cached book stores are taken from the BookStoreCache; the others are loaded together with one query
+    //for the book stores plus one per requested child set, however many IDs there are.
+    //Pinned to the primary like retrieveBookStoreById().
+    @PinnedToPrimary
+    public BookStoreBatch retrieveBookStoresByIds(Collection<Long> bookStoreIds, Set<Include> include) {
+        List<Long> ids = bookStoreIds.stream().filter(Objects::nonNull).distinct().toList();
+
+        if (ids.size() > MAX_BATCH_IDS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_IDS + " book store IDs can be fetched at once.");
+        }
+
+        Map<Long, BookStoreData> found = include.equals(Include.ALL)
+                ? bookStoreCache.getBookStores(ids, missing -> readOnly(() -> loadBookStoreData(missing, include)))
+                : readOnly(() -> loadBookStoreData(ids, include));
+
+        BookStoreBatch batch = new BookStoreBatch();
+
+        for (Long id : ids) {
+            if (found.containsKey(id)) {
+                batch.getBookStores().add(found.get(id));
+            } else {
+                batch.getMissingIds().add(id);
+            }
+        }
+        return batch;
+    }
+
+    //Batch version of loadBookStoreData. The fetch-join queries fill in the book stores already loaded by
+    //findAllById.
+    private Map<Long, BookStoreData> loadBookStoreData(Collection<Long> bookStoreIds, Set<Include> include) {
+        List<BookStore> bookStores = bookStoreDao.findAllById(bookStoreIds);
+
+        if (bookStores.isEmpty()) {
+            return Map.of();
+        }
+
+        if (include.contains(Include.CUSTOMERS)) {
+            bookStoreDao.findWithCustomersByBookStoreIdIn(bookStoreIds);
+        }
+
+        if (include.contains(Include.EMPLOYEES)) {
+            bookStoreDao.findWithEmployeesByBookStoreIdIn(bookStoreIds);
+        }
+
+        if (include.contains(Include.BOOKS)) {
+            bookStoreDao.findWithBooksByBookStoreIdIn(bookStoreIds);
+        }
+
+        Map<Long, BookStoreData> loaded = new HashMap<>();
+
+        for (BookStore bookStore : bookStores) {
+            loaded.put(bookStore.getBookStoreId(), new BookStoreData(bookStore, include));
+        }
+        return loaded;
     }
 
     private Employee findEmployeeById(Long bookStoreId, Long employeeId) {
@@ -112,13 +376,15 @@ public class BookStoreService {
 
 	@Transactional(readOnly = false)
     public BookStoreEmployee saveEmployee(Long bookStoreId, BookStoreEmployee bookStoreEmployee) {
-        BookStore bookStore = findBookStoreById(bookStoreId);
+        BookStore bookStore = touchBookStore(bookStoreId);
 
         Employee employee = findOrCreateEmployee(bookStoreEmployee.getEmployeeId(), bookStoreId);
         copyEmployeeFields(employee, bookStoreEmployee);
+        // Employee owns the relationship, so setting the foreign key is enough
         employee.setBookStore(bookStore);
-        bookStore.getEmployees().add(employee);
         Employee dbEmployee = employeeDao.save(employee);
+        bookStoreCache.evictBookStore(bookStoreId);
+        bookStoreChangeFeed.publish(BookStoreChange.Type.EMPLOYEE_SAVED, bookStoreId, dbEmployee.getEmployeeId(), 1);
         return new BookStoreEmployee(dbEmployee);
     }
 
@@ -126,27 +392,24 @@ public class BookStoreService {
         Customer customer = customerDao.findById(customerId)
                 .orElseThrow(() -> new NoSuchElementException("Customer with ID=" + customerId + " does not exist."));
 
-        boolean found = false;
-        for (BookStore bs : customer.getBookStores()) {
-            if (bs.getBookStoreId().equals(bookStoreId)) {
-                found = true;
-                break;
-            }
-        }
-        if (!found) {
+        if (!customerDao.isCustomerOfBookStore(bookStoreId, customerId)) {
             throw new IllegalArgumentException(
                     "BookStore with ID=" + bookStoreId + " not found for the Customer with ID=" + customerId);
         }
         return customer;
     }
 
-    private Customer findOrCreateCustomer(Long customerId, Long bookStoreId) {
+    //Without a customer ID the customer is matched by email, so a customer who already shops at another book store
+    //is reused instead of duplicated
+    private Customer findOrCreateCustomer(Long customerId, String customerEmail, Long bookStoreId) {
         Customer customer;
 
-        if (Objects.isNull(customerId)) {
-            customer = new Customer();
-        } else {
+        if (Objects.nonNull(customerId)) {
             customer = findCustomerById(customerId, bookStoreId);
+        } else if (Objects.nonNull(customerEmail)) {
+            customer = customerDao.findByCustomerEmail(customerEmail).orElseGet(Customer::new);
+        } else {
+            customer = new Customer();
         }
         return customer;
     }
@@ -158,30 +421,379 @@ public class BookStoreService {
         // Assuming customerId is managed by the database and not set manually
     }
 
+    //Returns the book store's customer with the given email. The unique email index and the join table's
+    //primary key make this two single-row probes.
+    @Transactional(readOnly = true)
+    public BookStoreCustomer retrieveCustomerByEmail(Long bookStoreId, String customerEmail) {
+        findBookStoreReference(bookStoreId);
+
+        Customer customer = customerDao.findByCustomerEmail(customerEmail)
+                .filter(found -> customerDao.isCustomerOfBookStore(bookStoreId, found.getCustomerId()))
+                .orElseThrow(() -> new NoSuchElementException("Customer with email " + customerEmail
+                        + " is not a customer of book store with ID=" + bookStoreId + "."));
+
+        return new BookStoreCustomer(customer);
+    }
+
     @Transactional(readOnly = false)
     public BookStoreCustomer saveCustomer(Long bookStoreId, BookStoreCustomer bookStoreCustomer) {
-        BookStore bookStore = findBookStoreById(bookStoreId);
-        Long customerId = bookStoreCustomer.getCustomerId();
-        Customer customer = findOrCreateCustomer(customerId, bookStoreId);
+        touchBookStore(bookStoreId);
+        Customer customer = findOrCreateCustomer(bookStoreCustomer.getCustomerId(),
+                bookStoreCustomer.getCustomerEmail(), bookStoreId);
+        boolean existing = Objects.nonNull(customer.getCustomerId());
         copyCustomerFields(customer, bookStoreCustomer);
-        bookStore.getCustomers().add(customer);
-        customer.getBookStores().add(bookStore);
         Customer dbCustomer = customerDao.save(customer);
+
+        // The book_store_customer row is inserted directly instead of going through BookStore.customers.
+        // An existing customer may already have it.
+        if (!existing || !customerDao.isCustomerOfBookStore(bookStoreId, dbCustomer.getCustomerId())) {
+            customerDao.addCustomerToBookStore(bookStoreId, dbCustomer.getCustomerId());
+            bookStoreRollups.customerAdded(bookStoreId);
+        }
+        bookStoreCache.evictBookStore(bookStoreId);
+        bookStoreChangeFeed.publish(BookStoreChange.Type.CUSTOMER_SAVED, bookStoreId, dbCustomer.getCustomerId(), 1);
+
+        if (existing) {
+            // A customer can belong to several book stores, and each of them shows the customer's details. One
+            // update raises all their content versions and one change covers them.
+            int others = bookStoreDao.incrementContentVersionOfCustomerStores(dbCustomer.getCustomerId(), bookStoreId);
+
+            if (others > 0) {
+                bookStoreCache.evictBookStores(customerDao.findBookStoreIds(dbCustomer.getCustomerId()));
+                bookStoreChangeFeed.publish(BookStoreChange.Type.CUSTOMER_UPDATED, null, dbCustomer.getCustomerId(),
+                        others);
+            }
+        }
         return new BookStoreCustomer(dbCustomer);
     }
 
+    @Transactional(readOnly = false)
     public BookStoreBook saveBook(Long bookStoreId, BookStoreBook bookstorebook) {
-        BookStore bookStore = findBookStoreById(bookStoreId);
+        BookStore bookStore = touchBookStore(bookStoreId);
         Long bookId = bookstorebook.getBookId();
          Book book = findOrCreateBook(bookStoreId, bookId);
+        boolean existing = Objects.nonNull(book.getBookId());
+        String oldGenre = book.getGenre();
+        String oldAuthor = book.getAuthor();
         copyBookFields(book, bookstorebook);
-         bookStore.getBook().add(book);
+         // Book owns the relationship, so setting the foreign key is enough
          book.setBookStore(bookStore);
-         bookStore.getBook().add(book);
         Book savedBook = bookDao.save(book);
+        bookStoreCache.evictBookStore(bookStoreId);
+        AfterCommit.run(() -> bookSearchIndex.index(bookStoreId, savedBook));
+        bookStoreChangeFeed.publish(BookStoreChange.Type.BOOK_SAVED, bookStoreId, savedBook.getBookId(), 1);
+
+        if (!existing) {
+            // The genre may be null, which List.of() does not allow
+            bookStoreRollups.booksAdded(bookStoreId, Collections.singletonList(savedBook.getGenre()));
+        } else if (!Objects.equals(oldGenre, savedBook.getGenre())
+                || !Objects.equals(oldAuthor, savedBook.getAuthor())) {
+            // The book's earlier sales move with it to its new genre and author
+            BigDecimal revenue = bookOrderDao.sumRevenueByBookId(bookId);
+            bookStoreRollups.bookChanged(bookStoreId, oldGenre, savedBook.getGenre(), oldAuthor, savedBook.getAuthor(),
+                    revenue);
+        }
         return new BookStoreBook(savedBook);
     }
 
+    //Reserves quantity copies of the book with one conditional update. The update runs in its own short
+    //transaction, so the row lock is released before the remaining stock is read back. The book store row is not
+    //touched, so reservations of different books never wait on each other.
+    //The transaction is READ COMMITTED: the update must test the stock other reservations have just committed, not
+    //a snapshot. InnoDB does that at any level, but H2 aborts a REPEATABLE READ update of a row changed since its
+    //snapshot as a deadlock.
+    //Pinned to the primary so that the stock read back includes the reservation just made.
+    @PinnedToPrimary
+    @TakesConnection
+    public BookStock reserveBook(Long bookStoreId, Long bookId, int quantity) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be at least 1, not " + quantity + ".");
+        }
+
+        TransactionTemplate reservation = new TransactionTemplate(transactionManager);
+        reservation.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        int reserved = reservation.execute(status -> bookDao.reserveStock(bookStoreId, bookId, quantity));
+        int stock = findStock(bookStoreId, bookId);
+
+        if (reserved == 0) {
+            throw new InsufficientStockException("Book with ID=" + bookId + " has " + stock
+                    + " copies in stock; " + quantity + " were requested.");
+        }
+        return new BookStock(bookStoreId, bookId, stock, quantity);
+    }
+
+    @Transactional(readOnly = true)
+    public BookStock retrieveBookStock(Long bookStoreId, Long bookId) {
+        return new BookStock(bookStoreId, bookId, findStock(bookStoreId, bookId), 0);
+    }
+
+    @Transactional
+    public BookStock saveBookStock(Long bookStoreId, Long bookId, int stock) {
+        if (stock < 0) {
+            throw new IllegalArgumentException("Stock cannot be negative.");
+        }
+
+        if (bookDao.updateStock(bookStoreId, bookId, stock) == 0) {
+            throw bookNotFound(bookStoreId, bookId);
+        }
+        bookStoreChangeFeed.publish(BookStoreChange.Type.STOCK_SAVED, bookStoreId, bookId, 1);
+        return new BookStock(bookStoreId, bookId, stock, 0);
+    }
+
+    private int findStock(Long bookStoreId, Long bookId) {
+        return bookDao.findStock(bookStoreId, bookId).orElseThrow(() -> bookNotFound(bookStoreId, bookId));
+    }
+
+    private NoSuchElementException bookNotFound(Long bookStoreId, Long bookId) {
+        return new NoSuchElementException(
+                "Book with ID=" + bookId + " does not exist in book store with ID=" + bookStoreId + ".");
+    }
+
+    //Checks the customer and books and prices the order from the current book prices, then hands it to the
+    //OrderWriter. The order is acknowledged as soon as it is in the order journal on disk; it reaches the database
+    //in a later batch, so checkout never waits for an insert to commit.
+    //The checks read the primary, so a customer or book added just before is never missing on a lagging replica.
+    @PinnedToPrimary
+    public BookStoreOrder checkout(Long bookStoreId, BookStoreOrder bookStoreOrder) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+
+        for (BookStoreOrderLine line : bookStoreOrder.getLines()) {
+            if (Objects.isNull(line.getBookId()) || line.getQuantity() < 1) {
+                throw new IllegalArgumentException("Every order line needs a bookId and a quantity of at least 1.");
+            }
+            quantities.merge(line.getBookId(), line.getQuantity(), Integer::sum);
+        }
+
+        if (quantities.isEmpty()) {
+            throw new IllegalArgumentException("An order needs at least one line.");
+        }
+
+        BookStoreOrder order = readOnly(() -> priceOrder(bookStoreId, bookStoreOrder.getCustomerId(), quantities));
+        orderWriter.submit(order);
+        return order;
+    }
+
+    private BookStoreOrder priceOrder(Long bookStoreId, Long customerId, Map<Long, Integer> quantities) {
+        findBookStoreReference(bookStoreId);
+
+        if (Objects.isNull(customerId) || !customerDao.isCustomerOfBookStore(bookStoreId, customerId)) {
+            throw new IllegalArgumentException(
+                    "Customer with ID=" + customerId + " is not a customer of book store with ID=" + bookStoreId + ".");
+        }
+
+        Map<Long, Book> books = new HashMap<>();
+
+        for (Book book : bookDao.findByBookStoreIdAndBookIds(bookStoreId, quantities.keySet())) {
+            books.put(book.getBookId(), book);
+        }
+
+        BookStoreOrder order = new BookStoreOrder();
+        order.setOrderId(UUID.randomUUID().toString());
+        order.setBookStoreId(bookStoreId);
+        order.setCustomerId(customerId);
+        order.setOrderedAt(Instant.now());
+        order.setStatus(BookStoreOrder.Status.PENDING);
+        BigDecimal total = BigDecimal.ZERO;
+
+        for (Map.Entry<Long, Integer> quantity : quantities.entrySet()) {
+            Book book = books.get(quantity.getKey());
+
+            if (Objects.isNull(book)) {
+                throw bookNotFound(bookStoreId, quantity.getKey());
+            }
+
+            if (Objects.isNull(book.getPrice())) {
+                throw new IllegalArgumentException("Book with ID=" + book.getBookId() + " has no price.");
+            }
+
+            BookStoreOrderLine line = new BookStoreOrderLine();
+            line.setBookId(book.getBookId());
+            line.setQuantity(quantity.getValue());
+            line.setUnitPrice(book.getPrice());
+            order.getLines().add(line);
+            total = total.add(book.getPrice().multiply(BigDecimal.valueOf(quantity.getValue())));
+        }
+
+        order.setOrderTotal(total);
+        return order;
+    }
+
+    //An order the OrderWriter has not stored yet is returned from the order journal with status PENDING
+    public BookStoreOrder retrieveOrder(Long bookStoreId, String orderId) {
+        return orderJournal.findPending(orderId)
+                .or(() -> readOnly(() -> bookOrderDao.findWithLinesByOrderId(orderId).map(BookStoreOrder::new)))
+                .filter(found -> found.getBookStoreId().equals(bookStoreId))
+                .orElseThrow(() -> new NoSuchElementException(
+                        "Order with ID=" + orderId + " does not exist in book store with ID=" + bookStoreId + "."));
+    }
+
+    //Reads books from a JSON array or from newline-delimited JSON one at a time and stores them in chunks.
+    //Each chunk is committed in its own transaction and its persistence context is discarded afterwards,
+    //so memory use is bounded by the chunk size rather than by the size of the upload.
+    public BookBulkLoadSummary bulkSaveBooks(Long bookStoreId, InputStream body) {
+        admitted(() -> findBookStoreReference(bookStoreId));
+
+        long started = System.currentTimeMillis();
+        long inserted = 0;
+        int chunks = 0;
+        List<BookStoreBook> chunk = new ArrayList<>(bulkChunkSize);
+
+        try (MappingIterator<BookStoreBook> books = objectMapper.readerFor(BookStoreBook.class).readValues(body)) {
+            while (books.hasNextValue()) {
+                chunk.add(books.nextValue());
+
+                if (chunk.size() == bulkChunkSize) {
+                    inserted += insertBookChunk(bookStoreId, chunk);
+                    chunks++;
+                    log.info("Bulk load for book store with ID={}: chunk {} stored, {} books so far",
+                            bookStoreId, chunks, inserted);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Malformed book after " + (inserted + chunk.size())
+                    + " books; " + inserted + " books were already stored. " + e.getMessage(), e);
+        }
+
+        if (!chunk.isEmpty()) {
+            inserted += insertBookChunk(bookStoreId, chunk);
+            chunks++;
+            log.info("Bulk load for book store with ID={}: chunk {} stored, {} books so far",
+                    bookStoreId, chunks, inserted);
+        }
+
+        return new BookBulkLoadSummary(bookStoreId, inserted, chunks, bulkChunkSize,
+                System.currentTimeMillis() - started);
+    }
+
+    //Inserts one chunk of new books. The pooled ID generator and hibernate.jdbc.batch_size let Hibernate send
+    //the inserts as JDBC batches when the transaction commits.
+    private int insertBookChunk(Long bookStoreId, List<BookStoreBook> bookStoreBooks) {
+        admitted(() -> transactionTemplate.execute(status -> {
+            BookStore bookStore = touchBookStore(bookStoreId);
+            List<Book> books = new ArrayList<>(bookStoreBooks.size());
+
+            for (BookStoreBook bookStoreBook : bookStoreBooks) {
+                Book book = new Book();
+                copyBookFields(book, bookStoreBook);
+                book.setBookStore(bookStore);
+                books.add(book);
+            }
+            bookDao.saveAll(books);
+            bookStoreCache.evictBookStore(bookStoreId);
+            AfterCommit.run(() -> books.forEach(book -> bookSearchIndex.index(bookStoreId, book)));
+            bookStoreRollups.booksAdded(bookStoreId, books.stream().map(Book::getGenre).toList());
+            bookStoreChangeFeed.publish(BookStoreChange.Type.BOOKS_ADDED, bookStoreId, null, books.size());
+            return books.size();
+        }));
+        return bookStoreBooks.size();
+    }
+
+    //Writes every book of the book store as one JSON object per line. The books are read through a database
+    //cursor on the streaming connection pool and never enter a persistence context, so heap use stays flat however
+    //large the catalog is.
+    public long exportBooks(Long bookStoreId, OutputStream out) throws IOException {
+        long exported = 0;
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(null);
+
+        try (Stream<Book> books = bookStreamDao.streamByBookStoreId(bookStoreId)) {
+            for (Book book : (Iterable<Book>) books::iterator) {
+                objectMapper.writeValue(generator, new BookStoreBook(book));
+                generator.writeRaw('\n');
+
+                if (++exported % EXPORT_FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+        }
+
+        generator.close();
+        log.info("Exported {} books for book store with ID={}", exported, bookStoreId);
+        return exported;
+    }
+
+    //Lists the book store's books, optionally filtered by genre and author, with keyset pagination: the cursor holds
+    //the sort key and ID of the previous page's last book, so every page is one index range scan of limit + 1 rows
+    //however deep it is. The extra row only tells whether there is a next page.
+    @Transactional(readOnly = true)
+    public BookPage retrieveBooks(Long bookStoreId, String genre, String author, String sort, String after,
+            int limit) {
+        findBookStoreReference(bookStoreId);
+
+        BookCursor cursor = new BookCursor(sort);
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        Specification<Book> where = BookSpecifications.inBookStore(bookStoreId);
+
+        if (Objects.nonNull(genre)) {
+            where = where.and(BookSpecifications.hasGenre(genre));
+        }
+        if (Objects.nonNull(author)) {
+            where = where.and(BookSpecifications.hasAuthor(author));
+        }
+        if (Objects.nonNull(after)) {
+            where = where.and(cursor.after(after));
+        }
+
+        List<Book> books = bookDao.findBy(where, query -> query.sortBy(cursor.sort()).limit(pageSize + 1).all());
+        boolean more = books.size() > pageSize;
+        List<Book> page = more ? books.subList(0, pageSize) : books;
+
+        return new BookPage(page.stream().map(BookStoreBook::new).toList(),
+                more ? cursor.encode(page.get(page.size() - 1)) : null);
+    }
+
+    //Lists the book store's books in a price range, cheapest first, optionally limited to one genre.
+    //Runs as an index range scan on (book_store_id[, genre], price_amount).
+    @Transactional(readOnly = true)
+    public List<BookStoreBook> retrieveBooksByPrice(Long bookStoreId, String genre, BigDecimal minPrice,
+            BigDecimal maxPrice, int limit) {
+        findBookStoreReference(bookStoreId);
+
+        BigDecimal min = Objects.isNull(minPrice) ? BigDecimal.ZERO : minPrice;
+        BigDecimal max = Objects.isNull(maxPrice) ? MAX_PRICE : maxPrice;
+        Limit pageSize = Limit.of(Math.min(Math.max(limit, 1), MAX_PAGE_SIZE));
+
+        List<Book> books = Objects.isNull(genre)
+                ? bookDao.findByPriceRange(bookStoreId, min, max, pageSize)
+                : bookDao.findByGenreAndPriceRange(bookStoreId, genre, min, max, pageSize);
+
+        return books.stream().map(BookStoreBook::new).toList();
+    }
+
+    //Returns the price aggregates per genre of the book store
+    @Transactional(readOnly = true)
+    public List<BookGenreStats> retrieveBookStats(Long bookStoreId) {
+        findBookStoreReference(bookStoreId);
+        return bookDao.findGenreStats(bookStoreId);
+    }
+
+    //Returns the book store's dashboard figures from the incrementally maintained BookStoreRollups
+    @Transactional(readOnly = true)
+    public BookStoreStats retrieveBookStoreStats(Long bookStoreId, int topAuthors) {
+        findBookStoreReference(bookStoreId);
+        return bookStoreRollups.stats(bookStoreId, Math.max(topAuthors, 0));
+    }
+
+    //Full-text search over the book store's authors, genres and descriptions. The ranking comes from the
+    //in-memory BookSearchIndex; only the books on the requested page are read from the database.
+    //offset plus limit may be at most BookSearchIndex.MAX_RESULTS; a deeper page is a bad request.
+    @Transactional(readOnly = true)
+    public List<BookStoreBook> searchBooks(Long bookStoreId, String query, int offset, int limit) {
+        findBookStoreReference(bookStoreId);
+
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
+        List<Long> bookIds = bookSearchIndex.search(bookStoreId, query, offset, pageSize);
+        Map<Long, Book> books = new HashMap<>();
+
+        for (Book book : bookDao.findAllById(bookIds)) {
+            books.put(book.getBookId(), book);
+        }
+
+        return bookIds.stream().map(books::get).filter(Objects::nonNull).map(BookStoreBook::new).toList();
+    }
+
     private Book findOrCreateBook(Long bookStoreId, Long bookId) {
     	
     	 if (Objects.isNull(bookId)) {
@@ -202,7 +814,7 @@ public class BookStoreService {
 		Book book = bookDao.findById(bookId)
 	                .orElseThrow(() -> new NoSuchElementException("Book with ID=" + bookId + " does not exist."));
 		
-	if (book.getBookStore().getBookStoreId()!=bookStoreId){
+	if (!book.getBookStore().getBookStoreId().equals(bookStoreId)){
 
 		 throw new IllegalArgumentException(
                  "BookStore with ID=" + bookStoreId + " not found for the Book with ID=" + bookId);
@@ -229,35 +841,194 @@ public class BookStoreService {
         return (List<Book>) bookStore.getBook();
     }
     
-    @Transactional(readOnly = true)
-    public List<BookStoreData> retrieveAllBookStores() {
-        List<BookStore> bookStores = bookStoreDao.findAll();
-        List<BookStoreData> result = new LinkedList<>();
+    //Returns one page of book store summaries. Only the book store columns are selected, so the customers,
+    //employees and books are never loaded. The page starts after the given book store ID.
+    //Pinned to the primary because a miss fills the BookStoreCache.
+    @PinnedToPrimary
+    public List<BookStoreData> retrieveAllBookStores(Long after, int limit) {
+        Long start = Objects.isNull(after) ? 0L : after;
+        int pageSize = Math.min(Math.max(limit, 1), MAX_PAGE_SIZE);
 
-        for (BookStore bookStore : bookStores) {
-        	BookStoreData psd = new BookStoreData(bookStore);
-            // Clear unnecessary collections or fields if needed
-        	psd.getCustomers().clear();
-			psd.getEmployees().clear();
-			psd.getBooks().clear();
-			
-            
-            result.add(psd);
+        return bookStoreCache.getSummaries(start, pageSize,
+                () -> readOnly(() -> bookStoreDao.findSummariesAfter(start, Limit.of(pageSize))));
+    }
+
+    //Returns up to k book stores within radiusKm of the ZIP code's centroid, nearest first. The in-memory
+    //NearbyStoreIndex finds them; their summary columns are then read in one query.
+    public List<NearbyBookStore> retrieveNearbyBookStores(String zip, int k, double radiusKm) {
+        if (k < 1 || k > MAX_NEARBY) {
+            throw new IllegalArgumentException("k must be between 1 and " + MAX_NEARBY + ".");
+        }
+
+        if (!(radiusKm > 0)) {
+            throw new IllegalArgumentException("radiusKm must be greater than 0.");
+        }
+
+        Centroid centroid = zipCentroids.find(zip);
+
+        if (Objects.isNull(centroid)) {
+            throw new NoSuchElementException("ZIP code " + zip + " is not known.");
+        }
+
+        List<Hit> hits = nearbyStoreIndex.nearest(centroid, k, radiusKm);
+
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, BookStoreData> summaries = new HashMap<>();
+
+        for (BookStoreData summary : readOnly(() -> bookStoreDao
+                .findSummariesByBookStoreIdIn(hits.stream().map(Hit::bookStoreId).toList()))) {
+            summaries.put(summary.getBookStoreId(), summary);
         }
-        return result;
+
+        //A store deleted after the search ran is simply left out
+        return hits.stream().filter(hit -> summaries.containsKey(hit.bookStoreId()))
+                .map(hit -> new NearbyBookStore(summaries.get(hit.bookStoreId()), hit.distanceKm())).toList();
+    }
+
+    //Runs the work in a read-only transaction. Used by the cached reads so that a cache hit needs no transaction.
+    private <T> T readOnly(Supplier<T> work) {
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        return admitted(() -> readOnlyTransaction.execute(status -> work.get()));
+    }
+
+    //Runs work that borrows a connection outside a @Transactional or TakesConnection method under the
+    //AdmissionGate, when it is enabled
+    private <T> T admitted(Supplier<T> work) {
+        AdmissionGate gate = admissionGate.getIfAvailable();
+        return Objects.isNull(gate) ? work.get() : gate.admit(work);
+    }
+
+    //The same for background work, which waits for a permit instead of being turned away
+    private <T> T awaitAdmission(Supplier<T> work) {
+        AdmissionGate gate = admissionGate.getIfAvailable();
+        return Objects.isNull(gate) ? work.get() : gate.await(work);
+    }
+
+    //Streams committed changes to the caller as Server-Sent Events, starting after the given sequence
+    public SseEmitter streamChanges(Long since) {
+        return bookStoreChangeFeed.subscribe(since);
     }
 
   
+    @PinnedToPrimary
+    @TakesConnection
     public BookStoreData returnBookStoreById(Long bookStoreId) {
         BookStore bookStore = findBookStoreById(bookStoreId);
         return new BookStoreData(bookStore);
     }
 
   
-    public void deleteBookStoreById(Long bookStoreId) {
-        BookStore bookStore = findBookStoreById(bookStoreId);
-        bookStoreDao.delete(bookStore);
-        
+    //Deletes the book store and everything that hangs off it with set-based deletes, one chunk per transaction.
+    //Nothing is loaded into the persistence context, so memory use and lock time stay bounded however large the
+    //book store is. Customers can belong to several book stores, so only their links to this one are removed.
+    //Pinned to the primary because the existence check runs outside the chunk transactions.
+    @PinnedToPrimary
+    @TakesConnection
+    public BookStoreDeletion deleteBookStoreById(Long bookStoreId) {
+        findBookStoreReference(bookStoreId);
+        return runDeletion(new BookStoreDeletion(UUID.randomUUID().toString(), bookStoreId));
+    }
+
+    //Runs the same deletion on the task executor and returns at once. Progress is kept for an hour and can be
+    //polled with retrieveDeletion().
+    @PinnedToPrimary
+    @TakesConnection
+    public BookStoreDeletion startBookStoreDeletion(Long bookStoreId) {
+        findBookStoreReference(bookStoreId);
+        BookStoreDeletion deletion = new BookStoreDeletion(UUID.randomUUID().toString(), bookStoreId);
+
+        deletionJobs.put(deletion.getJobId(), deletion);
+        taskExecutor.execute(() -> runDeletion(deletion));
+        return deletion;
+    }
+
+    public BookStoreDeletion retrieveDeletion(String jobId) {
+        BookStoreDeletion deletion = deletionJobs.getIfPresent(jobId);
+
+        if (Objects.isNull(deletion)) {
+            throw new NoSuchElementException("Deletion job with ID=" + jobId + " does not exist.");
+        }
+        return deletion;
+    }
+
+    private BookStoreDeletion runDeletion(BookStoreDeletion deletion) {
+        Long bookStoreId = deletion.getBookStoreId();
+        long started = System.currentTimeMillis();
+
+        try {
+            deletion.setCustomerLinksDeleted(deleteInChunks(deletion, () -> {
+                List<Long> ids = customerDao.findCustomerIdsByBookStoreId(bookStoreId, deleteChunkSize);
+                return ids.isEmpty() ? 0 : customerDao.removeCustomersFromBookStore(bookStoreId, ids);
+            }));
+            deletion.setOrdersDeleted(deleteInChunks(deletion, () -> {
+                List<String> ids = bookOrderDao.findIdsByBookStoreId(bookStoreId, Limit.of(deleteChunkSize));
+
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                bookOrderDao.deleteLinesByOrderIds(ids);
+                return bookOrderDao.deleteByOrderIds(ids);
+            }));
+            deletion.setEmployeesDeleted(deleteInChunks(deletion, () -> {
+                List<Long> ids = employeeDao.findIdsByBookStoreId(bookStoreId, Limit.of(deleteChunkSize));
+                return ids.isEmpty() ? 0 : employeeDao.deleteByEmployeeIds(ids);
+            }));
+            deletion.setBooksDeleted(deleteInChunks(deletion, () -> {
+                List<Long> ids = bookDao.findIdsByBookStoreId(bookStoreId, Limit.of(deleteChunkSize));
+                return ids.isEmpty() ? 0 : bookDao.deleteByBookIds(ids);
+            }));
+            awaitAdmission(() -> transactionTemplate
+                    .execute(status -> bookStoreDao.deleteByBookStoreId(bookStoreId)));
+
+            deletion.setStatus(BookStoreDeletion.Status.COMPLETED);
+            deletion.setMessage("Deletion of book store with ID=" + bookStoreId + " was successful.");
+        } catch (RuntimeException e) {
+            log.error("Deletion of book store with ID={} failed", bookStoreId, e);
+            deletion.setStatus(BookStoreDeletion.Status.FAILED);
+            deletion.setMessage(e.toString());
+            throw e;
+        } finally {
+            //Chunks that did commit are gone even if a later one failed
+            bookStoreCache.evictBookStore(bookStoreId);
+            bookStoreCache.evictSummaries();
+            bookSearchIndex.removeBookStore(bookStoreId);
+            bookStoreRollups.removeBookStore(bookStoreId);
+
+            if (deletion.getStatus() == BookStoreDeletion.Status.COMPLETED) {
+                nearbyStoreIndex.remove(bookStoreId);
+            }
+            //What is left of a book store whose deletion failed has changed all the same
+            bookStoreChangeFeed.publish(deletion.getStatus() == BookStoreDeletion.Status.COMPLETED
+                    ? BookStoreChange.Type.BOOK_STORE_DELETED : BookStoreChange.Type.BOOK_STORE_SAVED,
+                    bookStoreId, bookStoreId, 1);
+            deletion.setElapsedMillis(System.currentTimeMillis() - started);
+            deletionJobs.put(deletion.getJobId(), deletion);
+        }
+
+        log.info("Deleted book store with ID={}: {} customer links, {} orders, {} employees, {} books in {} chunks",
+                bookStoreId, deletion.getCustomerLinksDeleted(), deletion.getOrdersDeleted(),
+                deletion.getEmployeesDeleted(), deletion.getBooksDeleted(), deletion.getChunks());
+        return deletion;
+    }
+
+    //Runs chunk after chunk, each in its own transaction, until one deletes fewer rows than the chunk size. An
+    //asynchronous deletion takes a database permit for each chunk, so it shares the pool with requests.
+    private long deleteInChunks(BookStoreDeletion deletion, Supplier<Integer> chunk) {
+        long deleted = 0;
+        int count;
+
+        do {
+            count = awaitAdmission(() -> transactionTemplate.execute(status -> chunk.get()));
+            deleted += count;
+            deletion.setChunks(deletion.getChunks() + 1);
+            deletionJobs.put(deletion.getJobId(), deletion);
+        } while (count == deleteChunkSize);
+
+        return deleted;
     }
         
         
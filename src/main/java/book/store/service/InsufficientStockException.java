@@ -0,0 +1,12 @@
+package book.store.service;
+
+//Thrown when a reservation asks for more copies of a book than are left in stock.
+//GlobalErrorHandler turns it into 409 Conflict.
+public class InsufficientStockException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public InsufficientStockException(String message) {
+		super(message);
+	}
+}
@@ -0,0 +1,161 @@
+package book.store.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import book.store.config.PinnedToPrimary;
+import book.store.dao.BookStoreDao;
+import book.store.service.StoreGrid.Hit;
+import book.store.service.ZipCentroids.Centroid;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+//Where each book store is, for finding the stores nearest to a ZIP code. A book store is placed at the centroid of
+//its ZIP code; stores whose ZIP code is missing or not in ZipCentroids are left out and counted as unlocated.
+//
+//The index lives in memory only. It is rebuilt from BookStoreDao on startup and kept current by BookStoreService
+//after each committed save or deletion. Writes that arrive while a rebuild runs go to the current index and are
+//replayed onto the new one before it is swapped in, so none are lost. The rebuild reads the primary, so that every
+//write it does not see is one of those. The book_store.nearby.* gauges report its size and estimated heap use.
+@Component
+@Slf4j
+public class NearbyStoreIndex implements ApplicationRunner {
+
+	private final ZipCentroids zipCentroids;
+	private volatile StoreGrid grid = new StoreGrid();
+	private volatile Set<Long> unlocated = ConcurrentHashMap.newKeySet();
+
+	//Guards pendingUpdates. While a rebuild runs it holds every write applied to the current grid and unlocated set
+	//since the rebuild started; otherwise it is null.
+	private final Object updateLock = new Object();
+	private List<BiConsumer<StoreGrid, Set<Long>>> pendingUpdates;
+
+	@Autowired
+	private BookStoreDao bookStoreDao;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	public NearbyStoreIndex(ZipCentroids zipCentroids, MeterRegistry meterRegistry) {
+		this.zipCentroids = zipCentroids;
+
+		Gauge.builder("book_store.nearby.stores", this, index -> index.grid.size())
+				.description("Book stores in the nearby search index").register(meterRegistry);
+		Gauge.builder("book_store.nearby.unlocated", this, index -> index.unlocated.size())
+				.description("Book stores left out of the nearby search index because their ZIP code is unknown")
+				.register(meterRegistry);
+		Gauge.builder("book_store.nearby.estimated.bytes", this, index -> index.grid.estimatedBytes())
+				.description("Estimated heap used by the nearby search index").baseUnit("bytes")
+				.register(meterRegistry);
+	}
+
+	@Override
+	@PinnedToPrimary
+	public void run(ApplicationArguments args) {
+		rebuild();
+	}
+
+	//Places the book store at its ZIP code, moving it if it was indexed before
+	public void put(Long bookStoreId, String zip) {
+		Centroid centroid = zipCentroids.find(zip);
+
+		update((targetGrid, targetUnlocated) -> {
+			if (Objects.isNull(centroid)) {
+				targetGrid.remove(bookStoreId);
+				targetUnlocated.add(bookStoreId);
+			} else {
+				targetGrid.put(bookStoreId, centroid.latitude(), centroid.longitude());
+				targetUnlocated.remove(bookStoreId);
+			}
+		});
+	}
+
+	public void remove(Long bookStoreId) {
+		update((targetGrid, targetUnlocated) -> {
+			targetGrid.remove(bookStoreId);
+			targetUnlocated.remove(bookStoreId);
+		});
+	}
+
+	//Returns up to k book stores within radiusKm of the point, nearest first
+	public List<Hit> nearest(Centroid from, int k, double radiusKm) {
+		return grid.nearest(from.latitude(), from.longitude(), k, radiusKm);
+	}
+
+	//Reads every book store's ZIP code and swaps in the new grid when it is complete
+	@PinnedToPrimary
+	public void rebuild() {
+		long started = System.currentTimeMillis();
+
+		synchronized (updateLock) {
+			pendingUpdates = new ArrayList<>();
+		}
+
+		try {
+			TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+			readOnlyTransaction.setReadOnly(true);
+			List<Object[]> rows = readOnlyTransaction.execute(status -> bookStoreDao.findAllZips());
+
+			long[] bookStoreIds = new long[rows.size()];
+			double[] latitudes = new double[rows.size()];
+			double[] longitudes = new double[rows.size()];
+			Set<Long> rebuiltUnlocated = ConcurrentHashMap.newKeySet();
+			int located = 0;
+
+			for (Object[] row : rows) {
+				Long bookStoreId = (Long) row[0];
+				Centroid centroid = zipCentroids.find((String) row[1]);
+
+				if (Objects.isNull(centroid)) {
+					rebuiltUnlocated.add(bookStoreId);
+				} else {
+					bookStoreIds[located] = bookStoreId;
+					latitudes[located] = centroid.latitude();
+					longitudes[located] = centroid.longitude();
+					located++;
+				}
+			}
+
+			StoreGrid rebuilt = StoreGrid.build(Arrays.copyOf(bookStoreIds, located),
+					Arrays.copyOf(latitudes, located), Arrays.copyOf(longitudes, located));
+
+			//A write may have committed after the rows were read. Replaying it is harmless when they already have
+			//it: putting a book store moves it, and removing one that is gone does nothing.
+			synchronized (updateLock) {
+				pendingUpdates.forEach(update -> update.accept(rebuilt, rebuiltUnlocated));
+				grid = rebuilt;
+				unlocated = rebuiltUnlocated;
+			}
+		} finally {
+			synchronized (updateLock) {
+				pendingUpdates = null;
+			}
+		}
+
+		log.info("Nearby search index rebuilt in {} ms: {} book stores located, {} with an unknown ZIP code",
+				System.currentTimeMillis() - started, grid.size(), unlocated.size());
+	}
+
+	private void update(BiConsumer<StoreGrid, Set<Long>> update) {
+		synchronized (updateLock) {
+			update.accept(grid, unlocated);
+
+			if (Objects.nonNull(pendingUpdates)) {
+				pendingUpdates.add(update);
+			}
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package book.store.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import book.store.controller.model.BookStoreOrder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+//Append-only journal of accepted orders, one JSON object per line. Checkout returns only after the order's line has
+//been forced to disk, so an acknowledged order survives a crash even before OrderWriter has stored it. Appends that
+//arrive while a force is running share the next one, so concurrent checkouts do not each pay for an fsync.
+//
+//OrderWriter appends a FLUSHED entry with the IDs of every batch it has stored. On startup the orders without one
+//are handed back for replay. Once the file grows past compact-bytes it is rewritten with only the pending orders.
+@Component
+@Slf4j
+public class OrderJournal {
+
+	private final Path path;
+	private final long compactBytes;
+	private final ObjectMapper objectMapper;
+
+	//Orders appended but not yet marked as stored
+	private final Map<String, BookStoreOrder> pending = new ConcurrentHashMap<>();
+	private final List<BookStoreOrder> recovered = new ArrayList<>();
+
+	//Lock order is syncLock, then appendLock
+	private final Object appendLock = new Object();
+	private final Object syncLock = new Object();
+	private FileChannel channel;
+	private long written;
+	private long fileSize;
+	private volatile long synced;
+
+	public OrderJournal(@Value("${book-store.orders.journal:data/order-journal.ndjson}") Path path,
+			@Value("${book-store.orders.compact-bytes:67108864}") long compactBytes, ObjectMapper objectMapper)
+			throws IOException {
+		this.path = path.toAbsolutePath();
+		this.compactBytes = compactBytes;
+		this.objectMapper = objectMapper;
+
+		Files.createDirectories(this.path.getParent());
+		recover();
+		synchronized (syncLock) {
+			compact();
+		}
+		log.info("Order journal {} opened with {} orders to replay", this.path, recovered.size());
+	}
+
+	//Orders found in the journal at startup that were never marked as stored
+	public List<BookStoreOrder> recoveredOrders() {
+		return List.copyOf(recovered);
+	}
+
+	public Optional<BookStoreOrder> findPending(String orderId) {
+		return Optional.ofNullable(pending.get(orderId));
+	}
+
+	//Returns once the order is on disk
+	public void append(BookStoreOrder order) {
+		long end;
+
+		synchronized (appendLock) {
+			write(new Entry(Entry.ORDER, order, null));
+			pending.put(order.getOrderId(), order);
+			end = written;
+		}
+		sync(end);
+	}
+
+	//Records that the orders are in the database. Not forced: if the marker is lost the orders are replayed and
+	//skipped as already stored.
+	public void markStored(Collection<String> orderIds) {
+		synchronized (appendLock) {
+			write(new Entry(Entry.FLUSHED, null, List.copyOf(orderIds)));
+			orderIds.forEach(pending::remove);
+		}
+
+		if (fileSize > compactBytes) {
+			synchronized (syncLock) {
+				compact();
+			}
+		}
+	}
+
+	@PreDestroy
+	public void close() throws IOException {
+		synchronized (appendLock) {
+			channel.force(false);
+			channel.close();
+		}
+	}
+
+	//Forces everything written so far unless another thread already did. While one thread forces, appends
+	//queue up behind syncLock and are then covered by a single force.
+	private void sync(long end) {
+		if (synced >= end) {
+			return;
+		}
+
+		synchronized (syncLock) {
+			if (synced >= end) {
+				return;
+			}
+
+			long target;
+			synchronized (appendLock) {
+				target = written;
+			}
+
+			try {
+				channel.force(false);
+			} catch (IOException e) {
+				throw new UncheckedIOException("Order journal " + path + " could not be synced", e);
+			}
+			synced = target;
+		}
+	}
+
+	private void write(Entry entry) {
+		try {
+			ByteBuffer line = ByteBuffer.wrap((objectMapper.writeValueAsString(entry) + "\n")
+					.getBytes(StandardCharsets.UTF_8));
+			int length = line.remaining();
+
+			while (line.hasRemaining()) {
+				channel.write(line);
+			}
+			written += length;
+			fileSize += length;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Order journal " + path + " could not be written", e);
+		}
+	}
+
+	//Rewrites the journal with only the pending orders and swaps it in atomically. Called holding syncLock.
+	private void compact() {
+		synchronized (appendLock) {
+			Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+
+			try {
+				try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+					FileChannel current = channel;
+					channel = out;
+					fileSize = 0;
+
+					for (BookStoreOrder order : pending.values()) {
+						write(new Entry(Entry.ORDER, order, null));
+					}
+					out.force(false);
+					channel = current;
+				}
+
+				if (Objects.nonNull(channel)) {
+					channel.close();
+				}
+				Files.move(compacted, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+				synced = written;
+			} catch (IOException e) {
+				throw new UncheckedIOException("Order journal " + path + " could not be compacted", e);
+			}
+		}
+	}
+
+	private void recover() throws IOException {
+		if (!Files.exists(path)) {
+			return;
+		}
+
+		Map<String, BookStoreOrder> orders = new LinkedHashMap<>();
+
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			String line;
+
+			while (Objects.nonNull(line = reader.readLine())) {
+				Entry entry;
+
+				try {
+					entry = objectMapper.readValue(line, Entry.class);
+				} catch (JsonProcessingException e) {
+					//A crash in the middle of an append leaves a torn last line; that order was never acknowledged
+					log.warn("Ignoring unreadable order journal line: {}", e.getOriginalMessage());
+					continue;
+				}
+
+				if (Entry.ORDER.equals(entry.type())) {
+					orders.put(entry.order().getOrderId(), entry.order());
+				} else if (Entry.FLUSHED.equals(entry.type())) {
+					entry.orderIds().forEach(orders::remove);
+				}
+			}
+		}
+
+		pending.putAll(orders);
+		recovered.addAll(orders.values());
+	}
+
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private record Entry(String type, BookStoreOrder order, List<String> orderIds) {
+		static final String ORDER = "ORDER";
+		static final String FLUSHED = "FLUSHED";
+	}
+}
@@ -0,0 +1,269 @@
+package book.store.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import book.store.controller.model.BookStoreOrder;
+import book.store.controller.model.BookStoreOrder.BookStoreOrderLine;
+import book.store.dao.BookDao;
+import book.store.dao.BookOrderDao;
+import book.store.entity.Book;
+import book.store.entity.BookOrder;
+import book.store.entity.BookStore;
+import book.store.entity.Customer;
+import book.store.entity.OrderLine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+
+//Write-behind for orders. Checkout journals the order and puts it on a bounded queue; a single background thread
+//takes up to batch-size orders at a time and inserts them in one transaction, which Hibernate sends as JDBC
+//batches. Checkout therefore never waits for an insert to commit.
+//
+//The queue is the back-pressure: when queue-capacity orders are waiting, checkout waits up to max-wait for room and
+//is then rejected with 503 before anything is journaled. On startup the orders left in the journal are replayed
+//before the web server accepts requests; on shutdown the queue is drained after the web server has stopped.
+@Component
+@Slf4j
+public class OrderWriter implements SmartLifecycle {
+
+	private final OrderJournal orderJournal;
+	private final BookOrderDao bookOrderDao;
+	private final BookDao bookDao;
+	private final BookStoreRollups bookStoreRollups;
+	private final TransactionTemplate transactionTemplate;
+	private final int batchSize;
+	private final Duration maxWait;
+	private final Duration retryAfter;
+
+	private final BlockingQueue<BookStoreOrder> queue;
+	//Counts queued orders plus the batch being written, so room is only given back once a batch is stored
+	private final Semaphore capacity;
+
+	private final Counter accepted;
+	private final Counter rejected;
+	private final Counter stored;
+	private final Counter dropped;
+	private final Timer batchTimer;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private volatile boolean running;
+	private Thread writer;
+
+	public OrderWriter(OrderJournal orderJournal, BookOrderDao bookOrderDao, BookDao bookDao,
+			BookStoreRollups bookStoreRollups, TransactionTemplate transactionTemplate,
+			@Value("${book-store.orders.queue-capacity:10000}") int queueCapacity,
+			@Value("${book-store.orders.batch-size:500}") int batchSize,
+			@Value("${book-store.orders.max-wait:100ms}") Duration maxWait,
+			@Value("${book-store.admission.retry-after:1s}") Duration retryAfter, MeterRegistry meterRegistry) {
+		this.orderJournal = orderJournal;
+		this.bookOrderDao = bookOrderDao;
+		this.bookDao = bookDao;
+		this.bookStoreRollups = bookStoreRollups;
+		this.transactionTemplate = transactionTemplate;
+		this.batchSize = batchSize;
+		this.maxWait = maxWait;
+		this.retryAfter = retryAfter;
+		queue = new ArrayBlockingQueue<>(queueCapacity);
+		capacity = new Semaphore(queueCapacity);
+
+		Gauge.builder("book_store.orders.queued", queue, BlockingQueue::size)
+				.description("Orders accepted but not yet written").register(meterRegistry);
+		accepted = Counter.builder("book_store.orders.accepted").register(meterRegistry);
+		rejected = Counter.builder("book_store.orders.rejected")
+				.description("Checkouts turned away because the order queue was full").register(meterRegistry);
+		stored = Counter.builder("book_store.orders.stored").register(meterRegistry);
+		dropped = Counter.builder("book_store.orders.dropped")
+				.description("Orders that could not be stored because a book, customer or book store was deleted")
+				.register(meterRegistry);
+		batchTimer = Timer.builder("book_store.orders.batch").publishPercentileHistogram().register(meterRegistry);
+	}
+
+	//Journals the order and queues it for the writer. Returns once the order is durable.
+	public void submit(BookStoreOrder order) {
+		try {
+			if (!capacity.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+				rejected.increment();
+				throw new AdmissionRejectedException("The order queue is full. Try again later.", retryAfter);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new AdmissionRejectedException("Interrupted while waiting for the order queue.", retryAfter);
+		}
+
+		try {
+			orderJournal.append(order);
+		} catch (RuntimeException e) {
+			capacity.release();
+			throw e;
+		}
+		queue.add(order);
+		accepted.increment();
+	}
+
+	@Override
+	public void start() {
+		running = true;
+		writer = new Thread(this::writeLoop, "order-writer");
+		writer.setDaemon(true);
+		writer.start();
+
+		List<BookStoreOrder> recovered = orderJournal.recoveredOrders();
+
+		for (BookStoreOrder order : recovered) {
+			capacity.acquireUninterruptibly();
+			queue.add(order);
+		}
+
+		if (!recovered.isEmpty()) {
+			log.info("Replaying {} orders from the order journal", recovered.size());
+		}
+	}
+
+	@Override
+	public void stop() {
+		running = false;
+
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	//Starts before and stops after the web server, so no checkout can arrive while the writer is not running
+	@Override
+	public int getPhase() {
+		return 0;
+	}
+
+	private void writeLoop() {
+		List<BookStoreOrder> batch = new ArrayList<>(batchSize);
+
+		while (running || !queue.isEmpty()) {
+			try {
+				BookStoreOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+
+				if (first == null) {
+					continue;
+				}
+
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+
+				if (writeBatch(batch)) {
+					orderJournal.markStored(batch.stream().map(BookStoreOrder::getOrderId).toList());
+				}
+				capacity.release(batch.size());
+				batch.clear();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (RuntimeException e) {
+				log.error("Order writer failed", e);
+			}
+		}
+	}
+
+	//Returns false if the batch is still not stored when the application shuts down; it stays in the journal and
+	//is replayed on the next start.
+	private boolean writeBatch(List<BookStoreOrder> batch) throws InterruptedException {
+		while (true) {
+			try {
+				batchTimer.record(() -> insert(batch));
+				return true;
+			} catch (DataIntegrityViolationException e) {
+				//Something the batch refers to was deleted since checkout; store the others one by one
+				for (BookStoreOrder order : batch) {
+					insertOrDrop(order);
+				}
+				return true;
+			} catch (RuntimeException e) {
+				if (!running) {
+					log.error("Leaving {} orders in the journal; the database is unavailable", batch.size(), e);
+					return false;
+				}
+				log.error("Writing {} orders failed; retrying", batch.size(), e);
+				Thread.sleep(1000);
+			}
+		}
+	}
+
+	private void insertOrDrop(BookStoreOrder order) {
+		try {
+			insert(List.of(order));
+		} catch (DataIntegrityViolationException e) {
+			dropped.increment();
+			log.error("Dropping order {}: {}", order, e.getMostSpecificCause().toString());
+		}
+	}
+
+	//Inserts the orders that are not stored yet. The orders and their lines are persisted in one transaction, so
+	//hibernate.jdbc.batch_size and order_inserts turn them into a few batched statements. The ordered books are read
+	//in one query so that BookStoreRollups can group the new revenue by genre and author once the batch commits.
+	private void insert(List<BookStoreOrder> orders) {
+		int inserted = transactionTemplate.execute(status -> {
+			Set<String> alreadyStored = new HashSet<>(
+					bookOrderDao.findStoredOrderIds(orders.stream().map(BookStoreOrder::getOrderId).toList()));
+			List<BookStoreOrder> newOrders = orders.stream()
+					.filter(order -> !alreadyStored.contains(order.getOrderId())).toList();
+			Map<Long, Book> books = bookDao.findAllById(newOrders.stream()
+					.flatMap(order -> order.getLines().stream()).map(BookStoreOrderLine::getBookId).distinct().toList())
+					.stream().collect(Collectors.toMap(Book::getBookId, Function.identity()));
+			int count = 0;
+
+			for (BookStoreOrder bookStoreOrder : newOrders) {
+
+				BookOrder order = new BookOrder();
+				order.setOrderId(bookStoreOrder.getOrderId());
+				order.setOrderedAt(bookStoreOrder.getOrderedAt());
+				order.setOrderTotal(bookStoreOrder.getOrderTotal());
+				order.setBookStore(entityManager.getReference(BookStore.class, bookStoreOrder.getBookStoreId()));
+				order.setCustomer(entityManager.getReference(Customer.class, bookStoreOrder.getCustomerId()));
+
+				for (BookStoreOrderLine bookStoreOrderLine : bookStoreOrder.getLines()) {
+					OrderLine line = new OrderLine();
+					line.setQuantity(bookStoreOrderLine.getQuantity());
+					line.setUnitPrice(bookStoreOrderLine.getUnitPrice());
+					line.setBook(entityManager.getReference(Book.class, bookStoreOrderLine.getBookId()));
+					line.setBookOrder(order);
+					order.getLines().add(line);
+				}
+
+				entityManager.persist(order);
+				count++;
+			}
+
+			newOrders.forEach(order -> bookStoreRollups.orderStored(order, books));
+			return count;
+		});
+		stored.increment(inserted);
+	}
+}
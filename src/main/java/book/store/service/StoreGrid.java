@@ -0,0 +1,282 @@
+package book.store.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Locations of book stores in a grid of 0.25 degree cells (about 28 km north to south), for k-nearest searches.
+//Each cell holds the IDs and coordinates of its stores in plain arrays. Cells are never changed in place: a write
+//replaces the cell with a copy, so searches need no lock and always see a whole cell.
+//
+//A search visits rings of cells around the query point, nearest ring first, and stops as soon as no store in the
+//next ring can be closer than the k-th store found so far or the radius. Distances are great-circle distances.
+public final class StoreGrid {
+
+	public static final double EARTH_RADIUS_KM = 6371.0088;
+
+	private static final double CELL_DEGREES = 0.25;
+	private static final int ROWS = (int) (180 / CELL_DEGREES);
+	private static final int COLUMNS = (int) (360 / CELL_DEGREES);
+	private static final double CELL_KM = EARTH_RADIUS_KM * Math.toRadians(CELL_DEGREES);
+
+	//Rough heap cost of one cell (map node, boxed key, the cell and its three arrays) and of one store (its array
+	//slots and its entry in the store -> cell map), used for estimatedBytes()
+	private static final long BYTES_PER_CELL = 120;
+	private static final long BYTES_PER_STORE = 24 + 72;
+
+	private final Map<Long, Cell> cells = new ConcurrentHashMap<>();
+	//Guarded by this; only writers use it
+	private final Map<Long, Long> cellOfStore = new HashMap<>();
+	private volatile int size;
+
+	public StoreGrid() {
+	}
+
+	//Builds the grid for all stores at once, without the copy per store that put() makes
+	public static StoreGrid build(long[] storeIds, double[] latitudes, double[] longitudes) {
+		StoreGrid grid = new StoreGrid();
+		long[] keys = new long[storeIds.length];
+		Map<Long, Integer> counts = new HashMap<>();
+
+		for (int i = 0; i < storeIds.length; i++) {
+			keys[i] = key(row(latitudes[i]), column(longitudes[i]));
+			counts.merge(keys[i], 1, Integer::sum);
+		}
+
+		Map<Long, Cell> filling = new HashMap<>();
+		counts.forEach((key, count) -> filling.put(key, new Cell(new long[count], new double[count], new double[count])));
+		Map<Long, Integer> filled = new HashMap<>();
+
+		for (int i = 0; i < storeIds.length; i++) {
+			Cell cell = filling.get(keys[i]);
+			int slot = filled.merge(keys[i], 1, Integer::sum) - 1;
+			cell.storeIds[slot] = storeIds[i];
+			cell.latitudes[slot] = latitudes[i];
+			cell.longitudes[slot] = longitudes[i];
+			grid.cellOfStore.put(storeIds[i], keys[i]);
+		}
+
+		grid.cells.putAll(filling);
+		grid.size = storeIds.length;
+		return grid;
+	}
+
+	//Adds the store, or moves it if it is in the grid already
+	public synchronized void put(long storeId, double latitude, double longitude) {
+		removeStore(storeId);
+
+		long key = key(row(latitude), column(longitude));
+		Cell cell = cells.get(key);
+		cells.put(key, Objects.isNull(cell) ? new Cell(new long[] { storeId }, new double[] { latitude },
+				new double[] { longitude }) : cell.with(storeId, latitude, longitude));
+		cellOfStore.put(storeId, key);
+		size++;
+	}
+
+	public synchronized void remove(long storeId) {
+		removeStore(storeId);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long estimatedBytes() {
+		return cells.size() * BYTES_PER_CELL + size * BYTES_PER_STORE;
+	}
+
+	//Returns up to k stores within radiusKm of the point, nearest first
+	public List<Hit> nearest(double latitude, double longitude, int k, double radiusKm) {
+		PriorityQueue<Hit> farthestFirst = new PriorityQueue<>(k + 1,
+				Comparator.comparingDouble(Hit::distanceKm).reversed());
+		int row = row(latitude);
+		int column = column(longitude);
+		int total = size;
+		int seen = 0;
+		double sinLatitude = Math.sin(Math.toRadians(latitude));
+		double cosLatitude = Math.cos(Math.toRadians(latitude));
+
+		for (int ring = 0; ring <= Math.max(ROWS, COLUMNS / 2) && seen < total; ring++) {
+			double limit = farthestFirst.size() < k ? radiusKm : Math.min(radiusKm, farthestFirst.peek().distanceKm());
+
+			if (ring > 0 && ringLowerBoundKm(ring, cosLatitude) > limit) {
+				break;
+			}
+
+			for (Cell cell : ring(row, column, ring)) {
+				seen += cell.storeIds.length;
+
+				for (int i = 0; i < cell.storeIds.length; i++) {
+					double distance = distanceKm(sinLatitude, cosLatitude, longitude, cell.latitudes[i],
+							cell.longitudes[i]);
+
+					if (distance <= radiusKm && (farthestFirst.size() < k
+							|| distance < farthestFirst.peek().distanceKm())) {
+						farthestFirst.add(new Hit(cell.storeIds[i], distance));
+
+						if (farthestFirst.size() > k) {
+							farthestFirst.poll();
+						}
+					}
+				}
+			}
+		}
+
+		List<Hit> hits = new ArrayList<>(farthestFirst);
+		hits.sort(Comparator.comparingDouble(Hit::distanceKm));
+		return hits;
+	}
+
+	//Great-circle distance between two points, by the haversine formula
+	public static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+		return distanceKm(Math.sin(Math.toRadians(latitude1)), Math.cos(Math.toRadians(latitude1)), longitude1,
+				latitude2, longitude2);
+	}
+
+	private static double distanceKm(double sinLatitude1, double cosLatitude1, double longitude1, double latitude2,
+			double longitude2) {
+		double phi2 = Math.toRadians(latitude2);
+		double sinPhi2 = Math.sin(phi2);
+		double cosPhi2 = Math.cos(phi2);
+		//sin²((phi2 - phi1) / 2) = (1 - cos(phi2 - phi1)) / 2, so the query's sine and cosine are computed only once
+		double sinSquaredHalfDeltaPhi = Math.max(0, (1 - (cosPhi2 * cosLatitude1 + sinPhi2 * sinLatitude1)) / 2);
+		double sinHalfDeltaLambda = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+		double h = sinSquaredHalfDeltaPhi + cosLatitude1 * cosPhi2 * sinHalfDeltaLambda * sinHalfDeltaLambda;
+		return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(h)));
+	}
+
+	//No point of a cell in the given ring is closer to the query point than this. Such a cell is at least ring - 1
+	//whole cells away in latitude or in longitude. Across latitudes that is ring - 1 cell heights. Across longitudes
+	//the point has to reach a meridian that far away, which is at least asin(cos(latitude) * sin(gap)) away.
+	private static double ringLowerBoundKm(int ring, double cosLatitude) {
+		double gapDegrees = (ring - 1) * CELL_DEGREES;
+		double acrossLatitudes = (ring - 1) * CELL_KM;
+		double acrossLongitudes = EARTH_RADIUS_KM
+				* Math.asin(Math.abs(cosLatitude) * Math.sin(Math.toRadians(Math.min(gapDegrees, 90))));
+		return Math.min(acrossLatitudes, acrossLongitudes);
+	}
+
+	//The non-empty cells whose row or column is exactly ring cells away from the given cell. Columns wrap around at
+	//the antimeridian; each column is visited at most once, however large the ring.
+	private List<Cell> ring(int row, int column, int ring) {
+		if (ring == 0) {
+			Cell cell = cells.get(key(row, column));
+			return Objects.isNull(cell) ? Collections.emptyList() : List.of(cell);
+		}
+
+		List<Cell> found = new ArrayList<>();
+		int fromColumn = Math.max(-ring, -(COLUMNS / 2) + 1);
+		int toColumn = Math.min(ring, COLUMNS / 2);
+
+		for (int rowOffset : new int[] { -ring, ring }) {
+			for (int columnOffset = fromColumn; columnOffset <= toColumn; columnOffset++) {
+				addCell(found, row + rowOffset, column + columnOffset);
+			}
+		}
+
+		for (int columnOffset : new int[] { -ring, ring }) {
+			if (columnOffset < fromColumn || columnOffset > toColumn) {
+				continue;
+			}
+
+			for (int rowOffset = -ring + 1; rowOffset < ring; rowOffset++) {
+				addCell(found, row + rowOffset, column + columnOffset);
+			}
+		}
+		return found;
+	}
+
+	private void addCell(List<Cell> found, int row, int column) {
+		if (row < 0 || row >= ROWS) {
+			return;
+		}
+
+		Cell cell = cells.get(key(row, Math.floorMod(column, COLUMNS)));
+
+		if (Objects.nonNull(cell)) {
+			found.add(cell);
+		}
+	}
+
+	private void removeStore(long storeId) {
+		Long key = cellOfStore.remove(storeId);
+
+		if (Objects.isNull(key)) {
+			return;
+		}
+
+		Cell cell = cells.get(key).without(storeId);
+
+		if (cell.storeIds.length == 0) {
+			cells.remove(key);
+		} else {
+			cells.put(key, cell);
+		}
+		size--;
+	}
+
+	private static int row(double latitude) {
+		return Math.min(ROWS - 1, Math.max(0, (int) Math.floor((latitude + 90) / CELL_DEGREES)));
+	}
+
+	private static int column(double longitude) {
+		return Math.floorMod((int) Math.floor((longitude + 180) / CELL_DEGREES), COLUMNS);
+	}
+
+	private static long key(int row, int column) {
+		return (long) row << 32 | column;
+	}
+
+	public record Hit(long bookStoreId, double distanceKm) {
+	}
+
+	private static final class Cell {
+		private final long[] storeIds;
+		private final double[] latitudes;
+		private final double[] longitudes;
+
+		Cell(long[] storeIds, double[] latitudes, double[] longitudes) {
+			this.storeIds = storeIds;
+			this.latitudes = latitudes;
+			this.longitudes = longitudes;
+		}
+
+		Cell with(long storeId, double latitude, double longitude) {
+			int length = storeIds.length;
+			long[] ids = Arrays.copyOf(storeIds, length + 1);
+			double[] lats = Arrays.copyOf(latitudes, length + 1);
+			double[] lons = Arrays.copyOf(longitudes, length + 1);
+			ids[length] = storeId;
+			lats[length] = latitude;
+			lons[length] = longitude;
+			return new Cell(ids, lats, lons);
+		}
+
+		Cell without(long storeId) {
+			int length = storeIds.length;
+			int index = 0;
+
+			while (index < length && storeIds[index] != storeId) {
+				index++;
+			}
+
+			long[] ids = new long[length - 1];
+			double[] lats = new double[length - 1];
+			double[] lons = new double[length - 1];
+			System.arraycopy(storeIds, 0, ids, 0, index);
+			System.arraycopy(latitudes, 0, lats, 0, index);
+			System.arraycopy(longitudes, 0, lons, 0, index);
+			System.arraycopy(storeIds, index + 1, ids, index, length - index - 1);
+			System.arraycopy(latitudes, index + 1, lats, index, length - index - 1);
+			System.arraycopy(longitudes, index + 1, lons, index, length - index - 1);
+			return new Cell(ids, lats, lons);
+		}
+	}
+}
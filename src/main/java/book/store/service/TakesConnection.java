@@ -0,0 +1,14 @@
+package book.store.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//Marks a BookStoreService method that borrows a JDBC connection without being @Transactional itself, for example
+//because it runs repository calls or several transactions of its own. The AdmissionGate admits these methods and
+//the @Transactional ones; the others never wait for a database permit.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TakesConnection {
+}
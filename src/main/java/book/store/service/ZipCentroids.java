@@ -0,0 +1,82 @@
+package book.store.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+//Latitude and longitude of ZIP codes, read once from a file in the format of the Census Bureau's ZCTA Gazetteer
+//file: tab-separated, with a header row naming the GEOID, INTPTLAT and INTPTLONG columns among others.
+//
+//The bundled zip-centroids.tsv only covers a downtown ZIP code of a few dozen large cities, with coordinates
+//rounded to about a kilometer, so that the nearby search works out of the box. For real use point
+//book-store.nearby.zip-centroids at the national Gazetteer file, which covers about 33,000 ZIP codes.
+@Component
+@Slf4j
+public class ZipCentroids {
+
+	private static final Pattern ZIP = Pattern.compile("\\d{5}(-\\d{4})?");
+
+	private final Map<String, Centroid> centroids = new HashMap<>();
+
+	public ZipCentroids(@Value("${book-store.nearby.zip-centroids:classpath:zip-centroids.tsv}") Resource resource) {
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+			List<String> header = Arrays.stream(reader.readLine().split("\t")).map(String::trim).toList();
+			int zipColumn = column(header, "GEOID", resource);
+			int latitudeColumn = column(header, "INTPTLAT", resource);
+			int longitudeColumn = column(header, "INTPTLONG", resource);
+			String line;
+
+			while (Objects.nonNull(line = reader.readLine())) {
+				String[] fields = line.split("\t");
+
+				if (fields.length > Math.max(zipColumn, Math.max(latitudeColumn, longitudeColumn))) {
+					centroids.put(fields[zipColumn].trim(), new Centroid(Double.parseDouble(fields[latitudeColumn].trim()),
+							Double.parseDouble(fields[longitudeColumn].trim())));
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not read ZIP centroids from " + resource, e);
+		}
+
+		log.info("Loaded {} ZIP centroids from {}", centroids.size(), resource);
+	}
+
+	//Returns the centroid of a five-digit ZIP code or ZIP+4, or null for anything else or a ZIP code not in the file
+	public Centroid find(String zip) {
+		if (Objects.isNull(zip) || !ZIP.matcher(zip.trim()).matches()) {
+			return null;
+		}
+		return centroids.get(zip.trim().substring(0, 5));
+	}
+
+	public int size() {
+		return centroids.size();
+	}
+
+	private static int column(List<String> header, String name, Resource resource) {
+		int column = header.indexOf(name);
+
+		if (column < 0) {
+			throw new IllegalStateException(resource + " has no " + name + " column");
+		}
+		return column;
+	}
+
+	public record Centroid(double latitude, double longitude) {
+	}
+}
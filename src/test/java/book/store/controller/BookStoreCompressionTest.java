@@ -0,0 +1,96 @@
+package book.store.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreData.BookStoreBook;
+import book.store.service.BookStoreService;
+
+//A single book store is gzip-compressed for clients that accept gzip, with a strong ETag naming the compressed body.
+//That ETag answers If-None-Match with 304 and guards an update with If-Match.
+@SpringBootTest(webEnvironment = WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class BookStoreCompressionTest {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private BookStoreService bookStoreService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@Test
+	void singleBookStoreIsCompressedWithItsOwnStrongETag() throws Exception {
+		BookStoreData bookStoreData = new BookStoreData();
+		bookStoreData.setBookStoreName("Compressed Store");
+		Long bookStoreId = bookStoreService.saveBookStore(bookStoreData).getBookStoreId();
+
+		for (int count = 0; count < 50; count++) {
+			BookStoreBook book = new BookStoreBook();
+			book.setGenre("Crime");
+			book.setAuthor("Author " + count);
+			book.setPrice(new BigDecimal("9.99"));
+			bookStoreService.saveBook(bookStoreId, book);
+		}
+
+		URI uri = URI.create("http://localhost:" + port + "/book_store/" + bookStoreId);
+		HttpResponse<byte[]> gzipped = client.send(HttpRequest.newBuilder(uri).header("Accept-Encoding", "gzip").build(),
+				HttpResponse.BodyHandlers.ofByteArray());
+		String eTag = gzipped.headers().firstValue("ETag").orElseThrow();
+
+		assertThat(gzipped.statusCode()).isEqualTo(200);
+		assertThat(gzipped.headers().firstValue("Content-Encoding")).contains("gzip");
+		assertThat(gzipped.headers().allValues("Vary")).anySatisfy(vary -> assertThat(vary).contains("Accept-Encoding"));
+		assertThat(eTag).doesNotStartWith("W/").endsWith("+gzip\"");
+		assertThat(objectMapper.readValue(gunzip(gzipped.body()), BookStoreData.class).getBooks()).hasSize(50);
+
+		HttpResponse<byte[]> plain = client.send(HttpRequest.newBuilder(uri).build(),
+				HttpResponse.BodyHandlers.ofByteArray());
+
+		assertThat(plain.headers().firstValue("Content-Encoding")).isEmpty();
+		assertThat(plain.headers().firstValue("ETag")).hasValue(eTag.replace("+gzip", ""));
+		assertThat(plain.body().length).isGreaterThan(gzipped.body().length);
+
+		HttpResponse<byte[]> notModified = client.send(HttpRequest.newBuilder(uri).header("Accept-Encoding", "gzip")
+				.header("If-None-Match", eTag).build(), HttpResponse.BodyHandlers.ofByteArray());
+
+		assertThat(notModified.statusCode()).isEqualTo(304);
+
+		HttpResponse<byte[]> updated = client.send(HttpRequest.newBuilder(uri).header("If-Match", eTag)
+				.header("Content-Type", "application/json")
+				.PUT(HttpRequest.BodyPublishers.ofString("{\"bookStoreName\":\"Renamed Store\"}")).build(),
+				HttpResponse.BodyHandlers.ofByteArray());
+
+		assertThat(updated.statusCode()).isEqualTo(200);
+		assertThat(new String(updated.body(), StandardCharsets.UTF_8)).contains("Renamed Store");
+	}
+
+	private static byte[] gunzip(byte[] body) throws IOException {
+		try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+			return gzip.readAllBytes();
+		}
+	}
+}
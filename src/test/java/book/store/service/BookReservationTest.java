@@ -0,0 +1,125 @@
+package book.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import book.store.controller.model.BookStock;
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreData.BookStoreBook;
+import book.store.dao.BookDao;
+import book.store.entity.Book;
+import jakarta.persistence.EntityManagerFactory;
+
+//More clients than copies reserve one copy each of the same book at the same moment. Exactly as many reservations
+//succeed as there were copies, the others are told the book is sold out, and the stock ends at zero, never below.
+//Reservations leave the cached books and the cached book queries in place.
+@SpringBootTest
+@ActiveProfiles("test")
+class BookReservationTest {
+
+	private static final int THREADS = 300;
+	private static final int STOCK = 100;
+
+	@Autowired
+	private BookStoreService bookStoreService;
+
+	@Autowired
+	private BookDao bookDao;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void concurrentReservationsNeverOversell() throws Exception {
+		Long bookStoreId = saveBookStore();
+		Long bookId = saveBook(bookStoreId);
+		bookStoreService.saveBookStock(bookStoreId, bookId, STOCK);
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger reserved = new AtomicInteger();
+		AtomicInteger soldOut = new AtomicInteger();
+		AtomicInteger negativeStock = new AtomicInteger();
+		List<Future<?>> clients = new ArrayList<>();
+
+		for (int client = 0; client < THREADS; client++) {
+			clients.add(executor.submit(() -> {
+				start.await();
+
+				try {
+					BookStock bookStock = bookStoreService.reserveBook(bookStoreId, bookId, 1);
+					reserved.incrementAndGet();
+
+					if (bookStock.getStock() < 0) {
+						negativeStock.incrementAndGet();
+					}
+				} catch (InsufficientStockException e) {
+					soldOut.incrementAndGet();
+				}
+				return null;
+			}));
+		}
+
+		start.countDown();
+
+		for (Future<?> client : clients) {
+			client.get(1, TimeUnit.MINUTES);
+		}
+		executor.shutdown();
+
+		assertThat(reserved.get()).isEqualTo(STOCK);
+		assertThat(soldOut.get()).isEqualTo(THREADS - STOCK);
+		assertThat(negativeStock.get()).isZero();
+		assertThat(bookStoreService.retrieveBookStock(bookStoreId, bookId).getStock()).isZero();
+	}
+
+	@Test
+	void reservationsKeepTheSecondLevelAndQueryCaches() {
+		Long bookStoreId = saveBookStore();
+		Long bookId = saveBook(bookStoreId);
+		bookStoreService.saveBookStock(bookStoreId, bookId, STOCK);
+
+		//Puts the book and the price range query into the caches
+		bookDao.findById(bookId);
+		bookStoreService.retrieveBooksByPrice(bookStoreId, null, null, null, 10);
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		long queryCacheHits = statistics.getQueryCacheHitCount();
+
+		bookStoreService.reserveBook(bookStoreId, bookId, 1);
+		bookStoreService.saveBookStock(bookStoreId, bookId, STOCK);
+
+		assertThat(entityManagerFactory.getCache().contains(Book.class, bookId)).isTrue();
+		bookStoreService.retrieveBooksByPrice(bookStoreId, null, null, null, 10);
+		assertThat(statistics.getQueryCacheHitCount()).isEqualTo(queryCacheHits + 1);
+	}
+
+	private Long saveBookStore() {
+		BookStoreData bookStoreData = new BookStoreData();
+		bookStoreData.setBookStoreName("Launch Store");
+		return bookStoreService.saveBookStore(bookStoreData).getBookStoreId();
+	}
+
+	private Long saveBook(Long bookStoreId) {
+		BookStoreBook book = new BookStoreBook();
+		book.setGenre("Bestseller");
+		book.setAuthor("Launch Author");
+		book.setPrice(new BigDecimal("19.99"));
+		return bookStoreService.saveBook(bookStoreId, book).getBookId();
+	}
+}
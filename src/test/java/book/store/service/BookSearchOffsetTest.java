@@ -0,0 +1,30 @@
+package book.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+//A search can page down to BookSearchIndex.MAX_RESULTS hits and no further, so a large offset never makes the
+//top-hits heap keep every match and offset plus limit never overflows.
+class BookSearchOffsetTest {
+
+	private static final int LIMIT = 20;
+
+	private final BookSearchIndex index = new BookSearchIndex(new SimpleMeterRegistry());
+
+	@Test
+	void offsetUpToTheLastPageIsAllowed() {
+		assertThat(index.search(1L, "crime", BookSearchIndex.MAX_RESULTS - LIMIT, LIMIT)).isEmpty();
+	}
+
+	@Test
+	void deeperOrNegativeOffsetsAreRejected() {
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> index.search(1L, "crime", BookSearchIndex.MAX_RESULTS - LIMIT + 1, LIMIT));
+		assertThatIllegalArgumentException().isThrownBy(() -> index.search(1L, "crime", Integer.MAX_VALUE, LIMIT));
+		assertThatIllegalArgumentException().isThrownBy(() -> index.search(1L, "crime", -1, LIMIT));
+	}
+}
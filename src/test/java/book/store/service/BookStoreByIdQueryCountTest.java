@@ -0,0 +1,99 @@
+package book.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+
+import book.store.config.SqlStatementCounter;
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreData.BookStoreBook;
+import book.store.controller.model.BookStoreData.BookStoreCustomer;
+import book.store.controller.model.BookStoreData.BookStoreEmployee;
+import book.store.controller.model.BookStoreData.Include;
+
+//N+1 guard for the fully populated book store: one statement for the book store plus one per child set, however
+//many customers, employees and books it has. The BookStoreCache is off (ttl 0s) so that every call reaches the
+//database.
+@SpringBootTest(properties = "book-store.cache.ttl=0s")
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BookStoreByIdQueryCountTest {
+
+	private static final int CHILDREN = 25;
+	private static final long STATEMENTS = 1 + 3;
+
+	@Autowired
+	private BookStoreService bookStoreService;
+
+	@Autowired
+	private AsyncTaskExecutor applicationTaskExecutor;
+
+	private Long emptyBookStoreId;
+	private Long fullBookStoreId;
+
+	@BeforeAll
+	void createBookStores() {
+		emptyBookStoreId = saveBookStore("Empty");
+		fullBookStoreId = saveBookStore("Full");
+
+		for (int child = 0; child < CHILDREN; child++) {
+			BookStoreEmployee employee = new BookStoreEmployee();
+			employee.setEmployeeFirstName("Employee" + child);
+			bookStoreService.saveEmployee(fullBookStoreId, employee);
+
+			BookStoreCustomer customer = new BookStoreCustomer();
+			customer.setCustomerFirstName("Customer" + child);
+			customer.setCustomerEmail("customer" + child + "@full.example");
+			bookStoreService.saveCustomer(fullBookStoreId, customer);
+
+			BookStoreBook book = new BookStoreBook();
+			book.setGenre("Genre" + (child % 3));
+			book.setAuthor("Author" + child);
+			book.setPrice(new BigDecimal("9.99"));
+			bookStoreService.saveBook(fullBookStoreId, book);
+		}
+	}
+
+	@Test
+	void bookStoreWithAllChildSetsIsOneStatementPerSet() {
+		SqlStatementCounter.reset();
+		BookStoreData empty = bookStoreService.retrieveBookStoreById(emptyBookStoreId, Include.ALL);
+		long emptyCount = SqlStatementCounter.count();
+
+		SqlStatementCounter.reset();
+		BookStoreData full = bookStoreService.retrieveBookStoreById(fullBookStoreId, Include.ALL);
+		long fullCount = SqlStatementCounter.count();
+
+		assertThat(empty.getBooks()).isEmpty();
+		assertThat(full.getCustomers()).hasSize(CHILDREN);
+		assertThat(full.getEmployees()).hasSize(CHILDREN);
+		assertThat(full.getBooks()).hasSize(CHILDREN);
+		assertThat(fullCount).isEqualTo(emptyCount).isEqualTo(STATEMENTS);
+	}
+
+	//Work a request hands to the application task executor, like an export's StreamingResponseBody, is counted
+	//for the request
+	@Test
+	void statementsOnTheTaskExecutorCountForTheCaller() throws Exception {
+		SqlStatementCounter.reset();
+		applicationTaskExecutor.submit(() -> bookStoreService.retrieveBookStoreById(fullBookStoreId, Include.ALL))
+				.get(1, TimeUnit.MINUTES);
+
+		assertThat(SqlStatementCounter.count()).isEqualTo(STATEMENTS);
+	}
+
+	private Long saveBookStore(String name) {
+		BookStoreData bookStoreData = new BookStoreData();
+		bookStoreData.setBookStoreName(name);
+		return bookStoreService.saveBookStore(bookStoreData).getBookStoreId();
+	}
+}
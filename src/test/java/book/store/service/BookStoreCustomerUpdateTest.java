@@ -0,0 +1,95 @@
+package book.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import book.store.config.SqlStatementCounter;
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreData.BookStoreCustomer;
+import book.store.controller.model.BookStoreData.Include;
+
+//Updating a customer raises the content version of every book store the customer belongs to and evicts them from
+//the BookStoreCache, with the same statements whether the customer belongs to a few book stores or to many.
+@SpringBootTest
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BookStoreCustomerUpdateTest {
+
+	private static final int FEW = 3;
+	private static final int MANY = 30;
+
+	@Autowired
+	private BookStoreService bookStoreService;
+
+	private final List<Long> bookStoreIds = new ArrayList<>();
+
+	@BeforeAll
+	void createBookStores() {
+		for (int i = 0; i < MANY; i++) {
+			BookStoreData bookStoreData = new BookStoreData();
+			bookStoreData.setBookStoreName("Store " + i);
+			Long bookStoreId = bookStoreService.saveBookStore(bookStoreData).getBookStoreId();
+			bookStoreIds.add(bookStoreId);
+
+			//Saving the same email again links the existing customer to the book store
+			bookStoreService.saveCustomer(bookStoreId, customer("many", "Many"));
+
+			if (i < FEW) {
+				bookStoreService.saveCustomer(bookStoreId, customer("few", "Few"));
+			}
+		}
+	}
+
+	@Test
+	void updateCostsTheSameStatementsForFewAndManyBookStores() {
+		long fewStatements = statementsToUpdate("few", FEW);
+		long manyStatements = statementsToUpdate("many", MANY);
+
+		assertThat(manyStatements).isEqualTo(fewStatements);
+	}
+
+	private long statementsToUpdate(String name, int memberships) {
+		List<Long> members = bookStoreIds.subList(0, memberships);
+		long[] contentVersions = members.stream()
+				.mapToLong(bookStoreId -> bookStoreService.retrieveBookStoreVersion(bookStoreId).getContentVersion())
+				.toArray();
+		//Puts every member book store in the BookStoreCache
+		members.forEach(bookStoreId -> bookStoreService.retrieveBookStoreById(bookStoreId, Include.ALL));
+
+		SqlStatementCounter.reset();
+		bookStoreService.saveCustomer(members.get(0), customer(name, "Updated"));
+		long statements = SqlStatementCounter.count();
+
+		for (int i = 0; i < memberships; i++) {
+			Long bookStoreId = members.get(i);
+
+			assertThat(bookStoreService.retrieveBookStoreVersion(bookStoreId).getContentVersion())
+					.as("content version of book store %d", bookStoreId).isEqualTo(contentVersions[i] + 1);
+			assertThat(bookStoreService.retrieveBookStoreById(bookStoreId, Include.ALL).getCustomers())
+					.filteredOn(customer -> customer.getCustomerEmail().equals(email(name)))
+					.singleElement().extracting(BookStoreCustomer::getCustomerLastName).isEqualTo("Updated");
+		}
+		return statements;
+	}
+
+	private static BookStoreCustomer customer(String name, String lastName) {
+		BookStoreCustomer customer = new BookStoreCustomer();
+		customer.setCustomerFirstName(name);
+		customer.setCustomerLastName(lastName);
+		customer.setCustomerEmail(email(name));
+		return customer;
+	}
+
+	private static String email(String name) {
+		return name + "@customer.example";
+	}
+}
@@ -0,0 +1,96 @@
+package book.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreData.BookStoreBook;
+import io.micrometer.core.instrument.MeterRegistry;
+
+//The rollups group genres like the database collation, ignoring case, and count books without a genre under
+//"(none)". The figures kept up to date by the writes are the same as a full recount, also when the writes commit
+//while recounts run.
+@SpringBootTest
+@ActiveProfiles("test")
+class BookStoreRollupsTest {
+
+	@Autowired
+	private BookStoreService bookStoreService;
+
+	@Autowired
+	private BookStoreRollups bookStoreRollups;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void genresDifferingInCaseAreOneGroupBeforeAndAfterARecount() {
+		BookStoreData bookStoreData = new BookStoreData();
+		bookStoreData.setBookStoreName("Genre Store");
+		Long bookStoreId = bookStoreService.saveBookStore(bookStoreData).getBookStoreId();
+
+		for (String genre : Arrays.asList("Fantasy", "fantasy", "FANTASY", null, "Crime")) {
+			BookStoreBook book = new BookStoreBook();
+			book.setGenre(genre);
+			book.setAuthor("Author");
+			bookStoreService.saveBook(bookStoreId, book);
+		}
+
+		assertGenres(bookStoreRollups.stats(bookStoreId, 10).getBooksByGenre());
+
+		bookStoreRollups.rebuild();
+
+		assertGenres(bookStoreRollups.stats(bookStoreId, 10).getBooksByGenre());
+		assertThat(bookStoreRollups.stats(bookStoreId, 10).getBooks()).isEqualTo(5);
+	}
+
+	@Test
+	void writesCommittedDuringRecountsAreCountedOnce() throws Exception {
+		BookStoreData bookStoreData = new BookStoreData();
+		bookStoreData.setBookStoreName("Busy Store");
+		Long bookStoreId = bookStoreService.saveBookStore(bookStoreData).getBookStoreId();
+		double mismatches = meterRegistry.get("book_store.rollups.mismatches").counter().count();
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<?> writer = executor.submit(() -> {
+			for (int count = 0; count < 200; count++) {
+				BookStoreBook book = new BookStoreBook();
+				book.setGenre(count % 2 == 0 ? "Crime" : "Fantasy");
+				book.setAuthor("Author");
+				bookStoreService.saveBook(bookStoreId, book);
+			}
+		});
+
+		while (!writer.isDone()) {
+			bookStoreRollups.check();
+			bookStoreRollups.rebuild();
+		}
+		writer.get(1, TimeUnit.MINUTES);
+		executor.shutdown();
+		bookStoreRollups.check();
+
+		assertThat(meterRegistry.get("book_store.rollups.mismatches").counter().count()).isEqualTo(mismatches);
+		assertThat(bookStoreRollups.stats(bookStoreId, 10).getBooks()).isEqualTo(200);
+		assertThat(bookStoreRollups.stats(bookStoreId, 10).getBooksByGenre()).containsEntry("Crime", 100L)
+				.containsEntry("Fantasy", 100L);
+	}
+
+	private static void assertGenres(Map<String, Long> booksByGenre) {
+		assertThat(booksByGenre).hasSize(3).containsEntry("(none)", 1L).containsEntry("Crime", 1L);
+		assertThat(booksByGenre.entrySet()).anySatisfy(entry -> {
+			assertThat(entry.getKey()).isEqualToIgnoringCase("fantasy");
+			assertThat(entry.getValue()).isEqualTo(3L);
+		});
+	}
+}
@@ -0,0 +1,118 @@
+package book.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreData.BookStoreEmployee;
+import book.store.controller.model.BookStoreData.Include;
+import book.store.controller.model.BookStoreVersion;
+
+//Readers go through the BookStoreCache, the second-level cache and the cached version query while a writer commits
+//changes to the book store and to its children. A read that starts after a write has returned must see that write:
+//its versions can never be lower than the ones the writer last committed.
+@SpringBootTest
+@ActiveProfiles("test")
+class BookStoreStaleReadTest {
+
+	private static final int READERS = 8;
+	private static final int WRITES = 200;
+
+	@Autowired
+	private BookStoreService bookStoreService;
+
+	//The versions of the last committed write, published once the write has returned
+	private volatile long[] committed;
+
+	@Test
+	void noReadAfterACommitSeesTheOldVersion() throws Exception {
+		BookStoreData bookStoreData = new BookStoreData();
+		bookStoreData.setBookStoreName("Store 0");
+		bookStoreData = bookStoreService.saveBookStore(bookStoreData);
+		Long bookStoreId = bookStoreData.getBookStoreId();
+		committed = new long[] { bookStoreData.getVersion(), bookStoreData.getContentVersion() };
+
+		ExecutorService executor = Executors.newFixedThreadPool(READERS + 1);
+		CountDownLatch writing = new CountDownLatch(1);
+		Queue<String> staleReads = new ConcurrentLinkedQueue<>();
+		List<Future<Integer>> readers = new ArrayList<>();
+
+		for (int reader = 0; reader < READERS; reader++) {
+			boolean probe = reader % 2 == 0;
+			readers.add(executor.submit(() -> {
+				int reads = 0;
+
+				while (writing.getCount() > 0) {
+					long[] floor = committed;
+					long[] seen = probe ? versions(bookStoreService.retrieveBookStoreVersion(bookStoreId))
+							: versions(bookStoreService.retrieveBookStoreById(bookStoreId, Include.ALL));
+
+					if (seen[0] < floor[0] || seen[1] < floor[1]) {
+						staleReads.add((probe ? "version probe" : "book store") + " read " + seen[0] + "."
+								+ seen[1] + " after " + floor[0] + "." + floor[1] + " was committed");
+					}
+					reads++;
+				}
+				return reads;
+			}));
+		}
+
+		Future<?> writer = executor.submit(() -> {
+			try {
+				for (int i = 1; i <= WRITES; i++) {
+					if (i % 2 == 0) {
+						BookStoreData update = new BookStoreData();
+						update.setBookStoreId(bookStoreId);
+						update.setBookStoreName("Store " + i);
+						committed = versions(bookStoreService.saveBookStore(update));
+					} else {
+						BookStoreEmployee employee = new BookStoreEmployee();
+						employee.setEmployeeFirstName("Employee" + i);
+						bookStoreService.saveEmployee(bookStoreId, employee);
+						//Every child write raises the content version by one
+						committed = new long[] { committed[0], committed[1] + 1 };
+					}
+				}
+			} finally {
+				writing.countDown();
+			}
+		});
+
+		writer.get(2, TimeUnit.MINUTES);
+		int reads = 0;
+
+		for (Future<Integer> reader : readers) {
+			reads += reader.get(1, TimeUnit.MINUTES);
+		}
+		executor.shutdown();
+
+		assertThat(reads).isGreaterThan(WRITES);
+		assertThat(staleReads).isEmpty();
+
+		BookStoreData last = bookStoreService.retrieveBookStoreById(bookStoreId, Include.ALL);
+		assertThat(last.getBookStoreName()).isEqualTo("Store " + WRITES);
+		assertThat(last.getEmployees()).hasSize(WRITES / 2);
+	}
+
+	private static long[] versions(BookStoreData bookStoreData) {
+		return new long[] { bookStoreData.getVersion(), bookStoreData.getContentVersion() };
+	}
+
+	private static long[] versions(BookStoreVersion version) {
+		return new long[] { version.getVersion(), version.getContentVersion() };
+	}
+}
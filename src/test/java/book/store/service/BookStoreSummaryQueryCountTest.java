@@ -0,0 +1,112 @@
+package book.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import book.store.config.SqlStatementCounter;
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreData.BookStoreBook;
+import book.store.controller.model.BookStoreData.BookStoreCustomer;
+import book.store.controller.model.BookStoreData.BookStoreEmployee;
+
+//The summary listing selects only the book store columns, so one page is one statement whatever the page size and
+//however many customers, employees and books the book stores have. The BookStoreCache is off (ttl 0s) so that every
+//call reaches the database.
+@SpringBootTest(properties = "book-store.cache.ttl=0s")
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BookStoreSummaryQueryCountTest {
+
+	private static final int STORES = 20;
+
+	@Autowired
+	private BookStoreService bookStoreService;
+
+	private Long beforeFirst;
+
+	@BeforeAll
+	void createBookStores() {
+		for (int i = 0; i < STORES; i++) {
+			BookStoreData bookStoreData = new BookStoreData();
+			bookStoreData.setBookStoreName("Store " + i);
+			bookStoreData.setBookStoreZip("10001");
+			Long bookStoreId = bookStoreService.saveBookStore(bookStoreData).getBookStoreId();
+
+			if (i == 0) {
+				beforeFirst = bookStoreId - 1;
+			}
+
+			//Only the second half of the book stores have children, growing with i
+			for (int child = 0; i >= STORES / 2 && child < i; child++) {
+				bookStoreService.saveEmployee(bookStoreId, employee(i, child));
+				bookStoreService.saveCustomer(bookStoreId, customer(i, child));
+				bookStoreService.saveBook(bookStoreId, book(child));
+			}
+		}
+	}
+
+	@Test
+	void pageIsOneStatementWhateverItsSize() {
+		for (int pageSize : new int[] { 1, 5, STORES }) {
+			SqlStatementCounter.reset();
+			List<BookStoreData> page = bookStoreService.retrieveAllBookStores(beforeFirst, pageSize);
+
+			assertThat(page).hasSize(pageSize);
+			assertThat(SqlStatementCounter.count()).as("statements for a page of %d", pageSize).isEqualTo(1);
+		}
+	}
+
+	@Test
+	void pageIsOneStatementWhateverTheChildRows() {
+		//The first page has book stores without children, the second the ones with the most
+		SqlStatementCounter.reset();
+		List<BookStoreData> withoutChildren = bookStoreService.retrieveAllBookStores(beforeFirst, STORES / 2);
+		long withoutChildrenCount = SqlStatementCounter.count();
+
+		SqlStatementCounter.reset();
+		List<BookStoreData> withChildren = bookStoreService
+				.retrieveAllBookStores(withoutChildren.get(withoutChildren.size() - 1).getBookStoreId(), STORES / 2);
+		long withChildrenCount = SqlStatementCounter.count();
+
+		assertThat(withChildren).hasSize(STORES / 2);
+		assertThat(withChildren).allSatisfy(summary -> {
+			assertThat(summary.getCustomers()).isEmpty();
+			assertThat(summary.getEmployees()).isEmpty();
+			assertThat(summary.getBooks()).isEmpty();
+		});
+		assertThat(withChildrenCount).isEqualTo(withoutChildrenCount).isEqualTo(1);
+	}
+
+	private static BookStoreEmployee employee(int store, int child) {
+		BookStoreEmployee employee = new BookStoreEmployee();
+		employee.setEmployeeFirstName("Employee" + child);
+		employee.setEmployeeLastName("Store" + store);
+		return employee;
+	}
+
+	private static BookStoreCustomer customer(int store, int child) {
+		BookStoreCustomer customer = new BookStoreCustomer();
+		customer.setCustomerFirstName("Customer" + child);
+		customer.setCustomerLastName("Store" + store);
+		customer.setCustomerEmail("customer" + child + "@store" + store + ".example");
+		return customer;
+	}
+
+	private static BookStoreBook book(int child) {
+		BookStoreBook book = new BookStoreBook();
+		book.setGenre("Genre" + (child % 3));
+		book.setAuthor("Author" + child);
+		book.setDescription("Book " + child);
+		book.setPrice(new BigDecimal("9.99"));
+		return book;
+	}
+}
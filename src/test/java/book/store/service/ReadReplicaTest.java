@@ -0,0 +1,174 @@
+package book.store.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import book.store.controller.model.BookStoreData;
+import book.store.controller.model.BookStoreData.BookStoreBook;
+import book.store.controller.model.BookStoreData.Include;
+import book.store.entity.Book;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+//Two embedded databases: the primary, and a replica that only gets the primary's data when replicate() copies it
+//over, so it lags behind every write made since. Reads that fill a cache must still see the writes: the BookStoreCache
+//and the version probe read the primary, and reads served by the replica never fill Hibernate's caches.
+//
+//The replica has no replica_heartbeat row until the first copy, so it is skipped until then. After that the lag
+//limit is high enough that it stays in use however far it falls behind.
+@SpringBootTest(properties = {
+		"book-store.datasource.replicas[0].url=" + ReadReplicaTest.REPLICA_URL,
+		"book-store.datasource.max-lag=1h",
+		"book-store.datasource.check-interval=100ms" })
+@ActiveProfiles("test")
+class ReadReplicaTest {
+
+	static final String REPLICA_URL = "jdbc:h2:mem:read_replica_test;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+	@Autowired
+	private BookStoreService bookStoreService;
+
+	@Autowired
+	private HikariDataSource primaryDataSource;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void readAfterAWriteSeesTheWriteWhileTheReplicaLags() throws Exception {
+		Long bookStoreId = saveBookStore("Before");
+		replicate();
+
+		//Fills the BookStoreCache, the summary cache and the query cache
+		assertThat(bookStoreService.retrieveBookStoreById(bookStoreId, Include.ALL).getBookStoreName())
+				.isEqualTo("Before");
+		assertThat(summaryName(bookStoreId)).isEqualTo("Before");
+		long version = bookStoreService.retrieveBookStoreVersion(bookStoreId).getVersion();
+
+		BookStoreData update = new BookStoreData();
+		update.setBookStoreId(bookStoreId);
+		update.setBookStoreName("After");
+		long updatedVersion = bookStoreService.saveBookStore(update).getVersion();
+
+		assertThat(updatedVersion).isGreaterThan(version);
+		assertThat(replicaBookStoreName(bookStoreId)).isEqualTo("Before");
+
+		//The first read after the eviction loads the book store again, the second one takes it from the cache
+		for (int read = 0; read < 2; read++) {
+			assertThat(bookStoreService.retrieveBookStoreById(bookStoreId, Include.ALL).getBookStoreName())
+					.isEqualTo("After");
+			assertThat(bookStoreService.retrieveBookStoresByIds(List.of(bookStoreId), Include.ALL).getBookStores())
+					.singleElement().extracting(BookStoreData::getBookStoreName).isEqualTo("After");
+			assertThat(summaryName(bookStoreId)).isEqualTo("After");
+			assertThat(bookStoreService.retrieveBookStoreVersion(bookStoreId).getVersion()).isEqualTo(updatedVersion);
+		}
+	}
+
+	@Test
+	void replicaReadsDoNotFillTheSecondLevelCache() throws Exception {
+		Long bookStoreId = saveBookStore("Cached");
+		BookStoreBook book = new BookStoreBook();
+		book.setGenre("Crime");
+		book.setAuthor("Old Author");
+		book.setPrice(new BigDecimal("10.00"));
+		book = bookStoreService.saveBook(bookStoreId, book);
+		replicate();
+
+		book.setAuthor("New Author");
+		bookStoreService.saveBook(bookStoreId, book);
+		//As if the book had expired from the second-level cache
+		entityManagerFactory.getCache().evictAll();
+
+		//Served by the replica, which has not seen the new author yet
+		assertThat(bookStoreService.retrieveBooksByPrice(bookStoreId, null, null, null, 10))
+				.singleElement().extracting(BookStoreBook::getAuthor).isEqualTo("Old Author");
+		assertThat(entityManagerFactory.getCache().contains(Book.class, book.getBookId())).isFalse();
+	}
+
+	@Test
+	void reservationReadsTheStockBackFromThePrimary() throws Exception {
+		Long bookStoreId = saveBookStore("Stocked");
+		BookStoreBook book = new BookStoreBook();
+		book.setGenre("Crime");
+		book.setAuthor("Author");
+		Long bookId = bookStoreService.saveBook(bookStoreId, book).getBookId();
+		bookStoreService.saveBookStock(bookStoreId, bookId, 5);
+		replicate();
+
+		assertThat(bookStoreService.reserveBook(bookStoreId, bookId, 1).getStock()).isEqualTo(4);
+	}
+
+	private Long saveBookStore(String name) {
+		BookStoreData bookStoreData = new BookStoreData();
+		bookStoreData.setBookStoreName(name);
+		return bookStoreService.saveBookStore(bookStoreData).getBookStoreId();
+	}
+
+	private String summaryName(Long bookStoreId) {
+		return bookStoreService.retrieveAllBookStores(bookStoreId - 1, 1).get(0).getBookStoreName();
+	}
+
+	//Replaces the replica's data with a copy of the primary's and waits until the replica is in use
+	private void replicate() throws Exception {
+		List<String> script = new ArrayList<>();
+
+		try (Connection primary = primaryDataSource.getConnection(); Statement statement = primary.createStatement();
+				ResultSet rows = statement.executeQuery("script nopasswords nosettings")) {
+			while (rows.next()) {
+				script.add(rows.getString(1));
+			}
+		}
+
+		try (Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+				Statement statement = replica.createStatement()) {
+			statement.execute("drop all objects");
+
+			for (String sql : script) {
+				statement.execute(sql);
+			}
+		}
+
+		//A check that was running during the copy may still mark the replica unhealthy, so wait for a few healthy
+		//checks in a row
+		int healthyChecks = 0;
+
+		for (int wait = 0; wait < 100 && healthyChecks < 3; wait++) {
+			Thread.sleep(100);
+			healthyChecks = meterRegistry.get("book_store.datasource.replica.healthy").tag("target", "replica-0")
+					.gauge().value() == 1 ? healthyChecks + 1 : 0;
+		}
+		assertThat(healthyChecks).as("healthy replica checks").isEqualTo(3);
+	}
+
+	private static String replicaBookStoreName(Long bookStoreId) throws SQLException {
+		try (Connection replica = DriverManager.getConnection(REPLICA_URL, "sa", "");
+				PreparedStatement query = replica
+						.prepareStatement("select book_store_name from book_store where book_store_id = ?")) {
+			query.setLong(1, bookStoreId);
+
+			try (ResultSet row = query.executeQuery()) {
+				return row.next() ? row.getString(1) : null;
+			}
+		}
+	}
+}